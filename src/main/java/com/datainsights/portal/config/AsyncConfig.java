@@ -0,0 +1,54 @@
+package com.datainsights.portal.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Bounded executor for background imports. When all workers are busy and
+     * the queue is full new imports are rejected instead of piling up.
+     */
+    @Bean(name = "importExecutor")
+    public ThreadPoolTaskExecutor importExecutor(
+            @Value("${import.executor.pool-size:2}") int poolSize,
+            @Value("${import.executor.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("import-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Dedicated pool for parsing large CSV imports in parallel, kept apart
+     * from the common pool so imports cannot starve other parallel work.
+     */
+    @Bean(name = "importParserPool", destroyMethod = "shutdown")
+    public ForkJoinPool importParserPool(
+            @Value("${import.parser.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads);
+    }
+
+    /**
+     * Dedicated pool for fitting and projecting the per-category forecasts
+     * of users with many categories, so they neither use the common pool
+     * nor take more cores than configured away from the web threads.
+     */
+    @Bean(name = "forecastPool", destroyMethod = "shutdown")
+    public ForkJoinPool forecastPool(
+            @Value("${forecast.pool.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads);
+    }
+}
@@ -1,5 +1,6 @@
 package com.datainsights.portal.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
@@ -8,8 +9,20 @@ import org.springframework.data.mongodb.repository.config.EnableMongoRepositorie
 @EnableMongoRepositories(basePackages = "com.datainsights.portal.repository.mongo")
 public class MongoConfig extends AbstractMongoClientConfiguration {
 
+    @Value("${spring.data.mongodb.auto-index-creation:true}")
+    private boolean autoIndexCreation;
+
     @Override
     protected String getDatabaseName() {
         return "dataInsights";
     }
+
+    /**
+     * Create the indexes declared on the documents, the archive and history
+     * queries rely on them
+     */
+    @Override
+    protected boolean autoIndexCreation() {
+        return autoIndexCreation;
+    }
 }
\ No newline at end of file
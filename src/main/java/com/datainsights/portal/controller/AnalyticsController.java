@@ -1,7 +1,9 @@
 package com.datainsights.portal.controller;
 
+import com.datainsights.portal.dto.AnalyticsHistoryCursor;
 import com.datainsights.portal.model.mongo.AnalyticsResult;
 import com.datainsights.portal.service.AnalyticsService;
+import com.datainsights.portal.util.TimeInterval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -22,6 +24,11 @@ public class AnalyticsController {
 
     private static final Logger logger = LoggerFactory.getLogger(AnalyticsController.class);
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
+    // Trends return every interval of the range, including empty ones
+    private static final int MAX_TREND_INTERVALS = 5000;
+
     private final AnalyticsService analyticsService;
 
     public AnalyticsController(AnalyticsService analyticsService) {
@@ -81,10 +88,9 @@ public class AnalyticsController {
         logger.info("Financial trends requested from {} to {} with interval {}", startDate, endDate, interval);
 
         // Validate interval parameter
-        if (!interval.equalsIgnoreCase("daily") &&
-                !interval.equalsIgnoreCase("weekly") &&
-                !interval.equalsIgnoreCase("monthly")) {
-            return ResponseEntity.badRequest().body("Invalid interval. Must be one of: daily, weekly, monthly");
+        String invalid = validateInterval(startDate, endDate, interval);
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(invalid);
         }
 
         try {
@@ -98,18 +104,93 @@ public class AnalyticsController {
     }
 
     /**
-     * Get history of saved analytics results
+     * Get the summary, category breakdown and trends in one call
+     */
+    @GetMapping("/overview")
+    public ResponseEntity<?> getAnalyticsOverview(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "monthly") String interval,
+            Authentication authentication) {
+
+        logger.info("Analytics overview requested from {} to {} with interval {}", startDate, endDate, interval);
+
+        // Validate interval parameter
+        String invalid = validateInterval(startDate, endDate, interval);
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(invalid);
+        }
+
+        try {
+            Map<String, Object> overview = analyticsService.getAnalyticsOverview(
+                    startDate, endDate, interval, authentication);
+            return ResponseEntity.ok(overview);
+        } catch (Exception e) {
+            logger.error("Error generating analytics overview: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error generating analytics overview: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get one page of saved analytics results, newest first. Entries leave
+     * out the results; pass nextCursor back as cursor for the next page.
      */
     @GetMapping("/history")
-    public ResponseEntity<?> getAnalyticsHistory(Authentication authentication) {
-        logger.info("Analytics history requested");
+    public ResponseEntity<?> getAnalyticsHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication authentication) {
+        logger.info("Analytics history requested, limit {}", limit);
+
+        if (limit < 1 || limit > MAX_HISTORY_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("Limit must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+        }
 
         try {
-            List<AnalyticsResult> history = analyticsService.getAnalyticsHistory(authentication);
-            return ResponseEntity.ok(history);
+            AnalyticsHistoryCursor position = cursor != null ? AnalyticsHistoryCursor.decode(cursor) : null;
+
+            return ResponseEntity.ok(analyticsService.getAnalyticsHistory(position, limit, authentication));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             logger.error("Error retrieving analytics history: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().body("Error retrieving analytics history: " + e.getMessage());
         }
     }
+
+    /**
+     * Get one saved analytics result including its results
+     */
+    @GetMapping("/history/{id}")
+    public ResponseEntity<?> getAnalyticsResult(@PathVariable String id, Authentication authentication) {
+        logger.info("Analytics result {} requested", id);
+
+        try {
+            AnalyticsResult result = analyticsService.getAnalyticsResult(id, authentication);
+            if (result == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error retrieving analytics result: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error retrieving analytics result: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return Why the interval cannot be used for the date range, or null if it can
+     */
+    private String validateInterval(LocalDate startDate, LocalDate endDate, String interval) {
+        TimeInterval timeInterval;
+        try {
+            timeInterval = TimeInterval.parse(interval);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        if (timeInterval.bucketCount(startDate, endDate) > MAX_TREND_INTERVALS) {
+            return "Date range too long for a " + timeInterval.value() + " interval, at most "
+                    + MAX_TREND_INTERVALS + " intervals are allowed";
+        }
+        return null;
+    }
 }
@@ -2,9 +2,13 @@ package com.datainsights.portal.controller;
 
 import com.datainsights.portal.model.Transaction;
 import com.datainsights.portal.model.User;
+import com.datainsights.portal.repository.DailyRollupRepository;
+import com.datainsights.portal.repository.FinancialAggregateRepository.BucketTotals;
+import com.datainsights.portal.repository.FinancialAggregateRepository.SignTotals;
 import com.datainsights.portal.repository.TransactionRepository;
 import com.datainsights.portal.repository.UserRepository;
 import com.datainsights.portal.service.BudgetService;
+import com.datainsights.portal.util.MoneyAccumulator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
@@ -19,7 +23,6 @@ import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/financial")
@@ -33,6 +36,9 @@ public class FinancialDashboardController {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private DailyRollupRepository dailyRollupRepository;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -76,41 +82,22 @@ public class FinancialDashboardController {
                     break;
             }
 
-            // Get transaction data
-            BigDecimal totalIncome = transactionRepository.sumIncomeByUserAndDateRange(
-                    userId, startDate, endDate);
-            BigDecimal totalExpenses = transactionRepository.sumExpensesByUserAndDateRange(
-                    userId, startDate, endDate);
-
-            // Handle null values from database
-            if (totalIncome == null) totalIncome = BigDecimal.ZERO;
-            if (totalExpenses == null) totalExpenses = BigDecimal.ZERO;
-
-            int transactionCount = transactionRepository.countByCreatedByAndDateBetween(
-                    userId, startDate, endDate);
-
-            // List of transactions for this period
-            List<Transaction> transactions = transactionRepository
-                    .findByCreatedByAndDateBetween(userId, startDate, endDate);
+            // Get transaction totals from the daily rollup
+            SignTotals totals = dailyRollupRepository.sumBySign(userId, startDate, endDate);
+            BigDecimal totalIncome = totals.income();
+            BigDecimal totalExpenses = totals.expenses();
+            int transactionCount = (int) totals.count();
 
             // Calculate average transaction size
             BigDecimal avgTransaction = BigDecimal.ZERO;
             if (transactionCount > 0) {
-                BigDecimal totalAmount = transactions.stream()
-                        .map(Transaction::getAmount)
-                        .map(BigDecimal::abs)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                avgTransaction = totalAmount.divide(
+                avgTransaction = totalIncome.add(totalExpenses).divide(
                         BigDecimal.valueOf(transactionCount), 2, RoundingMode.HALF_UP);
             }
 
             // Recent imports (assuming this is the number of unique import jobs)
-            int recentImports = transactions.stream()
-                    .filter(t -> t.getImportId() != null)
-                    .map(Transaction::getImportId)
-                    .collect(Collectors.toSet())
-                    .size();
+            int recentImports = transactionRepository.countDistinctImportsByUserAndDateRange(
+                    userId, startDate, endDate);
 
             // Calculate balance and savings rate
             BigDecimal balance = totalIncome.subtract(totalExpenses);
@@ -187,47 +174,32 @@ public class FinancialDashboardController {
             LocalDate startDate = LocalDate.of(year, month, 1);
             LocalDate endDate = startDate.plusMonths(1).minusDays(1);
 
-            // Get all transactions for the month
-            List<Transaction> monthlyTransactions = transactionRepository
-                    .findByCreatedByAndDateBetween(userId, startDate, endDate);
+            // Get the daily totals for the month
+            List<BucketTotals> days = dailyRollupRepository.sumByDay(userId, startDate, endDate);
 
             // Group by week
             List<Map<String, Object>> weeklyData = new ArrayList<>();
 
-            // Create a map to hold data for each week
-            Map<Integer, List<Transaction>> weekMap = new HashMap<>();
-
-            // Group transactions by week
-            for (Transaction tx : monthlyTransactions) {
-                // Calculate week of month (1-indexed)
-                int weekOfMonth = (tx.getDate().getDayOfMonth() - 1) / 7 + 1;
-
-                if (!weekMap.containsKey(weekOfMonth)) {
-                    weekMap.put(weekOfMonth, new ArrayList<>());
-                }
-
-                weekMap.get(weekOfMonth).add(tx);
+            // Add up the days of each week in cents (1-indexed week of month)
+            long[] weekIncome = new long[6];
+            long[] weekExpenses = new long[6];
+            boolean[] weekHasData = new boolean[6];
+            for (BucketTotals day : days) {
+                int weekOfMonth = (day.bucket().getDayOfMonth() - 1) / 7 + 1;
+                weekIncome[weekOfMonth] += day.income();
+                weekExpenses[weekOfMonth] += day.expenses();
+                weekHasData[weekOfMonth] = true;
             }
 
             // Process each week's data
             for (int week = 1; week <= 5; week++) { // Up to 5 weeks in a month
-                List<Transaction> weekTransactions = weekMap.getOrDefault(week, new ArrayList<>());
-
-                if (weekTransactions.isEmpty() && week > 4) {
+                if (!weekHasData[week] && week > 4) {
                     // Skip empty 5th week
                     continue;
                 }
 
-                BigDecimal income = weekTransactions.stream()
-                        .filter(tx -> tx.getAmount().compareTo(BigDecimal.ZERO) > 0)
-                        .map(Transaction::getAmount)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                BigDecimal expenses = weekTransactions.stream()
-                        .filter(tx -> tx.getAmount().compareTo(BigDecimal.ZERO) < 0)
-                        .map(Transaction::getAmount)
-                        .map(BigDecimal::abs)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
+                BigDecimal income = MoneyAccumulator.toBigDecimal(weekIncome[week]);
+                BigDecimal expenses = MoneyAccumulator.toBigDecimal(weekExpenses[week]);
 
                 // Calculate net amount (income - expenses)
                 BigDecimal amount = income.subtract(expenses);
@@ -308,35 +280,20 @@ public class FinancialDashboardController {
                     break;
             }
 
-            // Get expense transactions for the timeframe
-            List<Transaction> expenses = transactionRepository.findExpenseTransactionsByUser(userId)
-                    .stream()
-                    .filter(tx -> !tx.getDate().isBefore(startDate) && !tx.getDate().isAfter(endDate))
-                    .collect(Collectors.toList());
+            // Expenses per category for the timeframe, from the daily rollup
+            Map<String, BigDecimal> categoryAmounts = dailyRollupRepository.sumExpensesByCategory(
+                    userId, startDate, endDate);
 
             // If no expenses, return demo data
-            if (expenses.isEmpty()) {
+            if (categoryAmounts.isEmpty()) {
                 logger.info("No expense data found, returning demo category data");
                 return ResponseEntity.ok(getDemoCategoryData());
             }
 
             // Calculate total expenses
-            BigDecimal totalExpenses = expenses.stream()
-                    .map(Transaction::getAmount)
-                    .map(BigDecimal::abs)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            // Group by category
-            Map<String, BigDecimal> categoryAmounts = new HashMap<>();
-
-            for (Transaction tx : expenses) {
-                String category = tx.getCategory() != null && !tx.getCategory().isEmpty()
-                        ? tx.getCategory() : "Uncategorized";
-                BigDecimal amount = tx.getAmount().abs();
-
-                categoryAmounts.put(category,
-                        categoryAmounts.getOrDefault(category, BigDecimal.ZERO).add(amount));
-            }
+            MoneyAccumulator expenseTotal = new MoneyAccumulator();
+            categoryAmounts.values().forEach(expenseTotal::add);
+            BigDecimal totalExpenses = expenseTotal.toBigDecimal();
 
             // Create result list
             List<Map<String, Object>> categories = new ArrayList<>();
@@ -448,6 +405,25 @@ public class FinancialDashboardController {
         }
     }
 
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<?> rebuildRollup(Authentication authentication) {
+        try {
+            String username = authentication.getName();
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+
+            int rows = dailyRollupRepository.rebuild(user.getId());
+            logger.info("Rebuilt the daily rollup of user {} with {} rows", username, rows);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("rollupRows", rows);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error rebuilding the daily rollup: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error rebuilding rollup: " + e.getMessage());
+        }
+    }
+
     private List<Map<String, Object>> getDemoRecentTransactions() {
         List<Map<String, Object>> demoData = new ArrayList<>();
 
@@ -4,6 +4,8 @@ import com.datainsights.portal.model.User;
 import com.datainsights.portal.repository.UserRepository;
 import com.datainsights.portal.service.ForecastService;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -22,14 +24,15 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ForecastController {
 
+    private static final Logger logger = LoggerFactory.getLogger(ForecastController.class);
+
     private final ForecastService forecastService;
     private final UserRepository userRepository;
 
     @PostConstruct
     public void init() {
-        System.out.println("ForecastController initialized");
-        System.out.println("ForecastService: " + (forecastService != null ? "OK" : "NULL"));
-        System.out.println("UserRepository: " + (userRepository != null ? "OK" : "NULL"));
+        logger.debug("ForecastController initialized, ForecastService: {}, UserRepository: {}",
+                forecastService != null ? "OK" : "NULL", userRepository != null ? "OK" : "NULL");
     }
 
     @GetMapping("/forecast/test-auth")
@@ -43,96 +46,142 @@ public class ForecastController {
     }
 
     @GetMapping("/forecast")
-    public ResponseEntity<List<Map<String, Object>>> getForecastData(
+    public ResponseEntity<?> getForecastData(
             @RequestParam(defaultValue = "6") int months,
             Authentication authentication) {
 
-        System.out.println("=== Forecast endpoint called ===");
-        System.out.println("Authentication: " + authentication);
-        System.out.println("Username: " + (authentication != null ? authentication.getName() : "null"));
+        logger.debug("Forecast requested for {} months by {}", months,
+                authentication != null ? authentication.getName() : null);
 
         if (authentication == null) {
-            System.out.println("No authentication found!");
+            logger.debug("Forecast requested without authentication");
             return ResponseEntity.status(401).build();
         }
 
+        if (months < 0) {
+            return badRequest("Invalid months. Must be 0 or more");
+        }
+
         try {
             User user = getUserFromAuthentication(authentication);
-            System.out.println("User found: " + user.getUsername());
 
             List<Map<String, Object>> forecastData = forecastService.generateForecast(user, months);
-            System.out.println("Forecast data generated: " + (forecastData != null ? forecastData.size() : "null") + " items");
+            logger.debug("Forecast data generated: {} items", forecastData != null ? forecastData.size() : null);
 
             return ResponseEntity.ok(forecastData);
         } catch (Exception e) {
-            System.out.println("ERROR in forecast endpoint: " + e.getMessage());
-            e.printStackTrace();
-            throw e; // Re-throw to see the actual error
+            logger.error("Error generating forecast: {}", e.getMessage(), e);
+            throw e;
         }
     }
 
     @GetMapping("/forecast/income")
-    public ResponseEntity<List<Map<String, Object>>> getIncomeProjection(
+    public ResponseEntity<?> getIncomeProjection(
             @RequestParam(defaultValue = "6") int months,
+            @RequestParam(defaultValue = "0") int parallelism,
             Authentication authentication) {
 
         if (authentication == null) {
             return ResponseEntity.status(401).build();
         }
 
+        if (months < 0) {
+            return badRequest("Invalid months. Must be 0 or more");
+        }
+
         try {
             User user = getUserFromAuthentication(authentication);
-            List<Map<String, Object>> incomeData = forecastService.generateIncomeProjection(user, months);
+            List<Map<String, Object>> incomeData = forecastService.generateIncomeProjection(user, months, parallelism);
             return ResponseEntity.ok(incomeData);
         } catch (Exception e) {
-            System.out.println("ERROR in income projection: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error generating income projection: {}", e.getMessage(), e);
             throw e;
         }
     }
 
     @GetMapping("/forecast/expenses")
-    public ResponseEntity<List<Map<String, Object>>> getExpenseProjection(
+    public ResponseEntity<?> getExpenseProjection(
             @RequestParam(defaultValue = "6") int months,
+            @RequestParam(defaultValue = "0") int parallelism,
             Authentication authentication) {
 
         if (authentication == null) {
             return ResponseEntity.status(401).build();
         }
 
+        if (months < 0) {
+            return badRequest("Invalid months. Must be 0 or more");
+        }
+
         try {
             User user = getUserFromAuthentication(authentication);
-            List<Map<String, Object>> expenseData = forecastService.generateExpenseProjection(user, months);
+            List<Map<String, Object>> expenseData = forecastService.generateExpenseProjection(user, months, parallelism);
             return ResponseEntity.ok(expenseData);
         } catch (Exception e) {
-            System.out.println("ERROR in expense projection: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error generating expense projection: {}", e.getMessage(), e);
             throw e;
         }
     }
 
     @GetMapping("/forecast/savings")
-    public ResponseEntity<List<Map<String, Object>>> getSavingsProjection(
+    public ResponseEntity<?> getSavingsProjection(
             @RequestParam(defaultValue = "6") int months,
+            @RequestParam(defaultValue = "deterministic") String mode,
+            @RequestParam(defaultValue = "0") int paths,
             Authentication authentication) {
 
         if (authentication == null) {
             return ResponseEntity.status(401).build();
         }
 
+        if (months < 0) {
+            return badRequest("Invalid months. Must be 0 or more");
+        }
+
+        boolean monteCarlo = "monte-carlo".equalsIgnoreCase(mode);
+        if (!monteCarlo && !"deterministic".equalsIgnoreCase(mode)) {
+            return badRequest("Invalid mode. Must be one of: deterministic, monte-carlo");
+        }
+
         try {
             User user = getUserFromAuthentication(authentication);
-            List<Map<String, Object>> savingsData = forecastService.generateSavingsProjection(user, months);
+            // Monte Carlo returns p10/p50/p90 bands of the total savings instead of one line
+            List<Map<String, Object>> savingsData = monteCarlo
+                    ? forecastService.generateSavingsSimulation(user, months, paths)
+                    : forecastService.generateSavingsProjection(user, months);
             return ResponseEntity.ok(savingsData);
         } catch (Exception e) {
-            System.out.println("ERROR in savings projection: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error generating savings projection: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    @GetMapping("/forecast/all")
+    public ResponseEntity<?> getAllForecasts(
+            @RequestParam(defaultValue = "6") int months,
+            @RequestParam(defaultValue = "0") int parallelism,
+            Authentication authentication) {
+
+        if (authentication == null) {
+            return ResponseEntity.status(401).build();
+        }
+
+        if (months < 0) {
+            return badRequest("Invalid months. Must be 0 or more");
+        }
+
+        try {
+            User user = getUserFromAuthentication(authentication);
+            Map<String, Object> forecasts = forecastService.generateAllForecasts(user, months, parallelism);
+            return ResponseEntity.ok(forecasts);
+        } catch (Exception e) {
+            logger.error("Error generating combined forecast: {}", e.getMessage(), e);
             throw e;
         }
     }
 
     @GetMapping("/forecast/custom")
-    public ResponseEntity<Map<String, Object>> getCustomForecast(
+    public ResponseEntity<?> getCustomForecast(
             @RequestParam String startDate,
             @RequestParam String endDate,
             Authentication authentication) {
@@ -145,19 +194,26 @@ public class ForecastController {
             User user = getUserFromAuthentication(authentication);
             LocalDate start = LocalDate.parse(startDate);
             LocalDate end = LocalDate.parse(endDate);
+            if (end.isBefore(start)) {
+                return badRequest("Invalid date range. endDate must not be before startDate");
+            }
 
             Map<String, Object> forecastSummary = forecastService.generateCustomForecast(user, start, end);
             return ResponseEntity.ok(forecastSummary);
         } catch (Exception e) {
-            System.out.println("ERROR in custom forecast: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error generating custom forecast: {}", e.getMessage(), e);
             throw e;
         }
     }
 
+    private ResponseEntity<Map<String, Object>> badRequest(String message) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", message);
+        return ResponseEntity.badRequest().body(error);
+    }
+
     private User getUserFromAuthentication(Authentication authentication) {
         String username = authentication.getName();
-        System.out.println("Looking for user: " + username);
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
     }
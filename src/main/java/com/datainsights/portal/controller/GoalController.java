@@ -73,6 +73,15 @@ public class GoalController {
         return ResponseEntity.ok(progress);
     }
 
+    @GetMapping("/goals/{id}/forecast")
+    public ResponseEntity<Map<String, Object>> getGoalForecast(@PathVariable Long id,
+                                                               @RequestParam(defaultValue = "0") int paths,
+                                                               Authentication authentication) {
+        User user = getUserFromAuthentication(authentication);
+        Map<String, Object> forecast = goalService.getGoalForecast(id, user, paths);
+        return ResponseEntity.ok(forecast);
+    }
+
     private User getUserFromAuthentication(Authentication authentication) {
         String username = authentication.getName();
         return userRepository.findByUsername(username)
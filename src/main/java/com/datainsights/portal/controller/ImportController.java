@@ -3,14 +3,22 @@ package com.datainsights.portal.controller;
 import com.datainsights.portal.dto.ImportJobDto;
 import com.datainsights.portal.model.ImportJob;
 import com.datainsights.portal.service.ImportService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -52,25 +60,115 @@ public class ImportController {
             ImportJob importJob = importService.processImportFile(file, category, importType, description, authentication);
 
             // Convert to DTO to control what data is sent to the client
-            ImportJobDto dto = new ImportJobDto(
-                    importJob.getId(),
-                    importJob.getFileName(),
-                    importJob.getCategory(),
-                    importJob.getImportType(),
-                    importJob.getStatus(),
-                    importJob.getRecordCount(),
-                    importJob.getCreatedAt(),
-                    importJob.getCompletedAt()
-            );
-
-            logger.info("File imported successfully: {}", file.getOriginalFilename());
-            return ResponseEntity.ok(dto);
+            ImportJobDto dto = toDto(importJob);
+
+            logger.info("File queued for import: {} (job {})", file.getOriginalFilename(), importJob.getId());
+            return ResponseEntity.accepted().body(dto);
+        } catch (TaskRejectedException e) {
+            logger.warn("Import rejected, queue is full: {}", file.getOriginalFilename());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Import queue is full, please try again later");
         } catch (Exception e) {
             logger.error("Error importing file: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().body("Error importing file: " + e.getMessage());
         }
     }
 
+    @PostMapping("/import/chunked")
+    public ResponseEntity<?> startChunkedUpload(
+            @RequestParam("fileName") String fileName,
+            @RequestParam("totalSize") long totalSize,
+            @RequestParam(value = "category", required = false) String category,
+            @RequestParam(value = "importType", required = false) String importType,
+            @RequestParam(value = "description", required = false) String description,
+            Authentication authentication) {
+
+        logger.info("Chunked upload requested: {}, size: {} bytes", fileName, totalSize);
+
+        if (authentication == null) {
+            return ResponseEntity.status(401).body("User not authenticated");
+        }
+
+        try {
+            ImportJob importJob = importService.startChunkedUpload(
+                    fileName, totalSize, category, importType, description, authentication);
+            return ResponseEntity.status(HttpStatus.CREATED).body(uploadStatus(importJob.getId(), 0, importJob));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error starting chunked upload: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error starting chunked upload: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Append one chunk, sent as the raw request body. The body is streamed
+     * to disk, so chunks are not limited by the multipart size settings.
+     */
+    @PutMapping(value = "/import/chunked/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadChunk(@PathVariable Long id,
+                                         @RequestParam("offset") long offset,
+                                         HttpServletRequest request,
+                                         Authentication authentication) {
+        try {
+            long received = importService.appendUploadChunk(id, offset, request.getInputStream(), authentication);
+            if (received < 0) {
+                return ResponseEntity.notFound().build();
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("uploadId", id);
+            response.put("offset", received);
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            // Tell the client where to resume from
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            response.put("offset", importService.getUploadedBytes(id, authentication));
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error writing chunk for upload {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error writing chunk: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/import/chunked/{id}")
+    public ResponseEntity<?> getChunkedUploadStatus(@PathVariable Long id, Authentication authentication) {
+        try {
+            ImportJob importJob = importService.getImportJobById(id, authentication);
+            if (importJob == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            long received = importService.getUploadedBytes(id, authentication);
+            return ResponseEntity.ok(uploadStatus(id, received, importJob));
+        } catch (Exception e) {
+            logger.error("Error retrieving upload status: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error retrieving upload status: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/import/chunked/{id}/complete")
+    public ResponseEntity<?> completeChunkedUpload(@PathVariable Long id, Authentication authentication) {
+        logger.info("Completing chunked upload {}", id);
+
+        try {
+            ImportJob importJob = importService.completeChunkedUpload(id, authentication);
+            if (importJob == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.accepted().body(toDto(importJob));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Import queue is full, please try again later");
+        } catch (Exception e) {
+            logger.error("Error completing chunked upload: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error completing chunked upload: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/imports")
     public ResponseEntity<?> getImportHistory(Authentication authentication) {
         logger.info("Import history requested");
@@ -79,16 +177,7 @@ public class ImportController {
 
         // Convert to DTOs with new fields
         List<ImportJobDto> dtos = importJobs.stream()
-                .map(job -> new ImportJobDto(
-                        job.getId(),
-                        job.getFileName(),
-                        job.getCategory(),
-                        job.getImportType(),
-                        job.getStatus(),
-                        job.getRecordCount(),
-                        job.getCreatedAt(),
-                        job.getCompletedAt()
-                ))
+                .map(this::toDto)
                 .collect(Collectors.toList());
 
         return ResponseEntity.ok(dtos);
@@ -105,24 +194,54 @@ public class ImportController {
                 return ResponseEntity.notFound().build();
             }
 
-            ImportJobDto dto = new ImportJobDto(
-                    importJob.getId(),
-                    importJob.getFileName(),
-                    importJob.getCategory(),
-                    importJob.getImportType(),
-                    importJob.getStatus(),
-                    importJob.getRecordCount(),
-                    importJob.getCreatedAt(),
-                    importJob.getCompletedAt()
-            );
-
-            return ResponseEntity.ok(dto);
+            return ResponseEntity.ok(toDto(importJob));
         } catch (Exception e) {
             logger.error("Error retrieving import job details: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().body("Error retrieving import job details: " + e.getMessage());
         }
     }
 
+    @GetMapping("/imports/{id}/validate")
+    public ResponseEntity<?> validateImport(@PathVariable Long id, Authentication authentication) {
+        logger.info("Validation requested for import job ID: {}", id);
+
+        try {
+            Map<String, Object> summary = importService.validateStoredImport(id, authentication);
+
+            if (summary == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            return ResponseEntity.ok(summary);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error validating import job: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error validating import job: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/imports/{id}/raw")
+    public ResponseEntity<?> downloadArchivedRows(@PathVariable Long id, Authentication authentication) {
+        logger.info("Archived rows requested for import job ID: {}", id);
+
+        try {
+            if (!importService.hasArchivedRows(id, authentication)) {
+                return ResponseEntity.notFound().build();
+            }
+
+            // Batches are decompressed one document at a time straight into the response
+            StreamingResponseBody body = out -> importService.exportArchivedRows(id, authentication, out);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("text/csv"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"import-" + id + ".csv\"")
+                    .body(body);
+        } catch (Exception e) {
+            logger.error("Error reading archived rows: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error reading archived rows: " + e.getMessage());
+        }
+    }
+
     @DeleteMapping("/imports/{id}")
     public ResponseEntity<?> deleteImportJob(@PathVariable Long id, Authentication authentication) {
         logger.info("Delete import job requested for ID: {}", id);
@@ -140,4 +259,32 @@ public class ImportController {
             return ResponseEntity.internalServerError().body("Error deleting import job: " + e.getMessage());
         }
     }
+
+    private Map<String, Object> uploadStatus(Long id, long received, ImportJob importJob) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("uploadId", id);
+        status.put("offset", received);
+        status.put("totalSize", importJob.getUploadSize());
+        status.put("status", importJob.getStatus());
+        return status;
+    }
+
+    private ImportJobDto toDto(ImportJob importJob) {
+        ImportJobDto dto = new ImportJobDto(
+                importJob.getId(),
+                importJob.getFileName(),
+                importJob.getCategory(),
+                importJob.getImportType(),
+                importJob.getStatus(),
+                importJob.getRecordCount(),
+                importJob.getCreatedAt(),
+                importJob.getCompletedAt()
+        );
+        dto.setRowsProcessed(importJob.getRowsProcessed());
+        dto.setRowsFailed(importJob.getRowsFailed());
+        dto.setRowsSkipped(importJob.getRowsSkipped());
+        dto.setRowsPerSecond(importJob.getRowsPerSecond());
+        dto.setErrorMessage(importJob.getErrorMessage());
+        return dto;
+    }
 }
\ No newline at end of file
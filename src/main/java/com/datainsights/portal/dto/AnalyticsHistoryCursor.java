@@ -0,0 +1,48 @@
+package com.datainsights.portal.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the analytics history: the creation time and ID of the last
+ * result on the previous page. The next page starts after it in
+ * (createdAt, id) descending order, so pages stay stable while new results
+ * are added. Clients pass it around as an opaque string.
+ *
+ * @param createdAt Creation time of the last result returned
+ * @param id Mongo ID of the last result returned
+ */
+public record AnalyticsHistoryCursor(LocalDateTime createdAt, String id) {
+
+    /**
+     * @return The cursor as a URL safe string
+     */
+    public String encode() {
+        String value = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read a cursor produced by {@link #encode()}
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static AnalyticsHistoryCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid history cursor");
+            }
+            String id = value.substring(separator + 1);
+            if (!id.matches("[0-9a-f]{24}")) {
+                throw new IllegalArgumentException("Invalid history cursor");
+            }
+            return new AnalyticsHistoryCursor(LocalDateTime.parse(value.substring(0, separator)), id);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid history cursor", e);
+        }
+    }
+}
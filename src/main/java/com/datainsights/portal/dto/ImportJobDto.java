@@ -10,6 +10,11 @@ public class ImportJobDto {
     private String importType;    // Added field
     private String status;
     private Integer recordCount;
+    private Integer rowsProcessed;
+    private Integer rowsFailed;
+    private Integer rowsSkipped;
+    private Integer rowsPerSecond;
+    private String errorMessage;
     private LocalDateTime createdAt;
     private LocalDateTime completedAt;
 
@@ -95,4 +100,45 @@ public class ImportJobDto {
     public void setImportType(String importType) {
         this.importType = importType;
     }
+
+    // Progress of asynchronous imports
+    public Integer getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    public void setRowsProcessed(Integer rowsProcessed) {
+        this.rowsProcessed = rowsProcessed;
+    }
+
+    public Integer getRowsFailed() {
+        return rowsFailed;
+    }
+
+    public void setRowsFailed(Integer rowsFailed) {
+        this.rowsFailed = rowsFailed;
+    }
+
+    public Integer getRowsSkipped() {
+        return rowsSkipped;
+    }
+
+    public void setRowsSkipped(Integer rowsSkipped) {
+        this.rowsSkipped = rowsSkipped;
+    }
+
+    public Integer getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(Integer rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.datainsights.portal.event;
+
+/**
+ * Published when the transactions of a user change, either through the
+ * transaction endpoints or because an import wrote rows. Listeners use it
+ * to drop anything they derived from the user's data.
+ *
+ * @param userId The user whose data changed
+ */
+public record TransactionDataChangedEvent(Long userId) {
+}
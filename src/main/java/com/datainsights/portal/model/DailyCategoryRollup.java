@@ -0,0 +1,47 @@
+package com.datainsights.portal.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Income and expense totals of one user, day and category, kept up to date
+ * by DailyRollupRepository whenever transactions are written. Transactions
+ * without a category are stored under the empty string, so the unique key
+ * never contains a NULL.
+ */
+@Entity
+@Table(name = "daily_user_category_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_daily_rollup_user_date_category",
+                columnNames = {"user_id", "txn_date", "category"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyCategoryRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private LocalDate txnDate;
+
+    @Column(nullable = false, length = 50)
+    private String category;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal incomeSum;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal expenseSum;
+
+    @Column(nullable = false)
+    private Long txnCount;
+}
@@ -29,6 +29,37 @@ public class ImportJob {
     @Column(name = "record_count")
     private Integer recordCount;
 
+    @Column(name = "rows_processed")
+    private Integer rowsProcessed;
+
+    @Column(name = "rows_failed")
+    private Integer rowsFailed;
+
+    @Column(name = "rows_skipped")
+    private Integer rowsSkipped;
+
+    // Resume point of an interrupted import: byte offset and data row count
+    // up to which every row has been committed
+    @Column(name = "last_committed_offset")
+    private Long lastCommittedOffset;
+
+    @Column(name = "last_committed_row")
+    private Long lastCommittedRow;
+
+    // Write throughput of the last run, for comparing bulk load paths
+    @Column(name = "rows_per_second")
+    private Integer rowsPerSecond;
+
+    @Column(name = "stored_file_name")
+    private String storedFileName;
+
+    // Declared total size of a chunked upload, in bytes
+    @Column(name = "upload_size")
+    private Long uploadSize;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
     @Column(name = "created_by")
     private Long createdBy;
 
@@ -109,6 +140,78 @@ public class ImportJob {
         this.recordCount = recordCount;
     }
 
+    public Integer getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    public void setRowsProcessed(Integer rowsProcessed) {
+        this.rowsProcessed = rowsProcessed;
+    }
+
+    public Integer getRowsFailed() {
+        return rowsFailed;
+    }
+
+    public void setRowsFailed(Integer rowsFailed) {
+        this.rowsFailed = rowsFailed;
+    }
+
+    public Integer getRowsSkipped() {
+        return rowsSkipped;
+    }
+
+    public void setRowsSkipped(Integer rowsSkipped) {
+        this.rowsSkipped = rowsSkipped;
+    }
+
+    public Long getLastCommittedOffset() {
+        return lastCommittedOffset;
+    }
+
+    public void setLastCommittedOffset(Long lastCommittedOffset) {
+        this.lastCommittedOffset = lastCommittedOffset;
+    }
+
+    public Long getLastCommittedRow() {
+        return lastCommittedRow;
+    }
+
+    public void setLastCommittedRow(Long lastCommittedRow) {
+        this.lastCommittedRow = lastCommittedRow;
+    }
+
+    public Integer getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(Integer rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public String getStoredFileName() {
+        return storedFileName;
+    }
+
+    public void setStoredFileName(String storedFileName) {
+        this.storedFileName = storedFileName;
+    }
+
+    public Long getUploadSize() {
+        return uploadSize;
+    }
+
+    public void setUploadSize(Long uploadSize) {
+        this.uploadSize = uploadSize;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
     public Long getCreatedBy() {
         return createdBy;
     }
@@ -0,0 +1,52 @@
+package com.datainsights.portal.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Income and expense totals and transaction counts of one user, month and
+ * category, kept up to date together with the daily rollup. Forecasts read
+ * these rows instead of every transaction of the user. The month is stored
+ * as year * 12 + month - 1, so consecutive months have consecutive ids.
+ */
+@Entity
+@Table(name = "monthly_user_category_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_monthly_rollup_user_month_category",
+                columnNames = {"user_id", "month_id", "category"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthlyCategoryRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Integer monthId;
+
+    @Column(nullable = false, length = 50)
+    private String category;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal incomeSum;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal expenseSum;
+
+    @Column(nullable = false)
+    private Long incomeCount;
+
+    @Column(nullable = false)
+    private Long expenseCount;
+
+    @Column(nullable = false)
+    private Long txnCount;
+}
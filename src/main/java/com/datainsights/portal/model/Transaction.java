@@ -9,7 +9,9 @@ import java.time.LocalDate;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "financial_transactions")
+@Table(name = "financial_transactions",
+        uniqueConstraints = @UniqueConstraint(name = "uk_transactions_user_row_hash",
+                columnNames = {"created_by", "row_hash"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -53,6 +55,10 @@ public class Transaction {
     @Column
     private Long importId;
 
+    // Content hash of an imported row, used to skip rows that were already imported
+    @Column(length = 64)
+    private String rowHash;
+
     // Combined lifecycle callbacks
     @PrePersist
     public void prePersist() {
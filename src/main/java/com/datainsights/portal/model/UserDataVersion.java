@@ -0,0 +1,31 @@
+package com.datainsights.portal.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Version stamp of a user's transaction data. It is incremented in the same
+ * database transaction as every change to the user's transactions, so a
+ * result computed at one version is still valid while the version is
+ * unchanged.
+ */
+@Entity
+@Table(name = "user_data_versions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDataVersion {
+
+    @Id
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
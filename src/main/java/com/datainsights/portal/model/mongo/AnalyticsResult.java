@@ -1,15 +1,26 @@
 package com.datainsights.portal.model.mongo;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 import java.util.Map;
 
 /**
- * MongoDB document for storing analytics results
+ * MongoDB document for storing analytics results. A result stays valid for
+ * as long as the data version of its user equals dataVersion, so it can be
+ * served again instead of recomputed. Results are removed by a TTL index
+ * 90 days after they were created.
  */
 @Document(collection = "analyticsResults")
+@CompoundIndexes({
+        @CompoundIndex(name = "user_type_parameters",
+                def = "{'createdBy': 1, 'type': 1, 'parametersHash': 1, 'dataVersion': -1}"),
+        @CompoundIndex(name = "user_history", def = "{'createdBy': 1, 'createdAt': -1, '_id': -1}")
+})
 public class AnalyticsResult {
 
     @Id
@@ -17,12 +28,19 @@ public class AnalyticsResult {
 
     private String type;
 
+    @Indexed(name = "createdAt_ttl", expireAfter = "90d")
     private LocalDateTime createdAt;
 
     private Long createdBy;
 
     private Map<String, Object> parameters;
 
+    // SHA-256 over the type and the sorted parameters
+    private String parametersHash;
+
+    // Data version of the user the results were computed at
+    private Long dataVersion;
+
     private Map<String, Object> results;
 
     // Getters and Setters
@@ -67,6 +85,22 @@ public class AnalyticsResult {
         this.parameters = parameters;
     }
 
+    public String getParametersHash() {
+        return parametersHash;
+    }
+
+    public void setParametersHash(String parametersHash) {
+        this.parametersHash = parametersHash;
+    }
+
+    public Long getDataVersion() {
+        return dataVersion;
+    }
+
+    public void setDataVersion(Long dataVersion) {
+        this.dataVersion = dataVersion;
+    }
+
     public Map<String, Object> getResults() {
         return results;
     }
@@ -1,12 +1,18 @@
 package com.datainsights.portal.model.mongo;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
-import java.util.Map;
 
+/**
+ * One batch of the original rows of an import. Each file is archived as a
+ * series of size-bounded documents, ordered by batchIndex, whose payload is
+ * the gzip compressed CSV text of the rows.
+ */
 @Document(collection = "rawImportData")
+@CompoundIndex(name = "import_batch", def = "{'importJobId': 1, 'batchIndex': 1}", unique = true)
 public class RawImportData {
 
     @Id
@@ -22,7 +28,16 @@ public class RawImportData {
 
     private String sourceType;
 
-    private Map<String, Object> rawData;
+    private int batchIndex;
+
+    // Data row number (1-based) of the first row in this batch
+    private long firstRow;
+
+    private int rowCount;
+
+    private String compression;
+
+    private byte[] payload;
 
     // Getters and Setters
 
@@ -74,11 +89,43 @@ public class RawImportData {
         this.sourceType = sourceType;
     }
 
-    public Map<String, Object> getRawData() {
-        return rawData;
+    public int getBatchIndex() {
+        return batchIndex;
+    }
+
+    public void setBatchIndex(int batchIndex) {
+        this.batchIndex = batchIndex;
+    }
+
+    public long getFirstRow() {
+        return firstRow;
+    }
+
+    public void setFirstRow(long firstRow) {
+        this.firstRow = firstRow;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    public byte[] getPayload() {
+        return payload;
     }
 
-    public void setRawData(Map<String, Object> rawData) {
-        this.rawData = rawData;
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
     }
 }
\ No newline at end of file
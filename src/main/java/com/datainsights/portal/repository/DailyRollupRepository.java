@@ -0,0 +1,274 @@
+package com.datainsights.portal.repository;
+
+import com.datainsights.portal.repository.FinancialAggregateRepository.BucketTotals;
+import com.datainsights.portal.repository.FinancialAggregateRepository.SignTotals;
+import com.datainsights.portal.util.MoneyAccumulator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintains and reads daily_user_category_rollup, the per user, day and
+ * category totals of financial_transactions.
+ * <p>
+ * Writers collect the change they make as {@link Deltas} and apply them in
+ * the same database transaction as the change itself, so the rollup never
+ * disagrees with the committed transactions. Readers then sum a few rows
+ * per day instead of every transaction in the range. The same deltas and
+ * rebuilds also maintain the monthly rollup of {@link MonthlyRollupRepository}.
+ */
+@Repository
+public class DailyRollupRepository {
+
+    private static final String COLUMNS = "user_id, txn_date, category, income_sum, expense_sum, txn_count";
+
+    private static final String UPSERT_POSTGRES =
+            "INSERT INTO daily_user_category_rollup (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (user_id, txn_date, category) DO UPDATE SET " +
+            "income_sum = daily_user_category_rollup.income_sum + EXCLUDED.income_sum, " +
+            "expense_sum = daily_user_category_rollup.expense_sum + EXCLUDED.expense_sum, " +
+            "txn_count = daily_user_category_rollup.txn_count + EXCLUDED.txn_count";
+
+    // HOLDLOCK keeps two concurrent merges of a new key from both inserting it
+    private static final String UPSERT_SQL_SERVER =
+            "MERGE daily_user_category_rollup WITH (HOLDLOCK) AS r " +
+            "USING (VALUES (?, ?, ?, ?, ?, ?)) AS d (" + COLUMNS + ") " +
+            "ON r.user_id = d.user_id AND r.txn_date = d.txn_date AND r.category = d.category " +
+            "WHEN MATCHED THEN UPDATE SET income_sum = r.income_sum + d.income_sum, " +
+            "expense_sum = r.expense_sum + d.expense_sum, txn_count = r.txn_count + d.txn_count " +
+            "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") " +
+            "VALUES (d.user_id, d.txn_date, d.category, d.income_sum, d.expense_sum, d.txn_count);";
+
+    private static final String UPDATE =
+            "UPDATE daily_user_category_rollup SET income_sum = income_sum + ?, expense_sum = expense_sum + ?, " +
+            "txn_count = txn_count + ? WHERE user_id = ? AND txn_date = ? AND category = ?";
+
+    private static final String INSERT =
+            "INSERT INTO daily_user_category_rollup (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String REBUILD_SELECT =
+            "INSERT INTO daily_user_category_rollup (" + COLUMNS + ") " +
+            "SELECT created_by, date, COALESCE(category, ''), " +
+            "SUM(CASE WHEN amount > 0 THEN amount ELSE 0 END), " +
+            "SUM(CASE WHEN amount < 0 THEN -amount ELSE 0 END), " +
+            "COUNT(*) FROM financial_transactions ";
+
+    private static final String REBUILD_GROUP_BY = " GROUP BY created_by, date, COALESCE(category, '')";
+
+    private static final String USER_AND_RANGE = "user_id = ? AND txn_date BETWEEN ? AND ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect databaseDialect;
+    private final MonthlyRollupRepository monthlyRollupRepository;
+
+    public DailyRollupRepository(JdbcTemplate jdbcTemplate, DatabaseDialect databaseDialect,
+                                 MonthlyRollupRepository monthlyRollupRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.databaseDialect = databaseDialect;
+        this.monthlyRollupRepository = monthlyRollupRepository;
+    }
+
+    /**
+     * Add the collected deltas to the rollup. Must run inside the
+     * transaction that wrote the underlying rows.
+     */
+    public void apply(Deltas deltas) {
+        if (deltas.totals.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(deltas.totals.size());
+        Set<Long> shrunkUsers = new HashSet<>();
+        for (Map.Entry<Key, Totals> entry : deltas.totals.entrySet()) {
+            Key key = entry.getKey();
+            Totals totals = entry.getValue();
+            if (totals.count == 0 && totals.income == 0 && totals.expenses == 0) {
+                // An update that did not move the transaction
+                continue;
+            }
+            rows.add(new Object[]{key.userId(), key.day(), key.category(),
+                    MoneyAccumulator.toBigDecimal(totals.income), MoneyAccumulator.toBigDecimal(totals.expenses),
+                    totals.count});
+            if (totals.count < 0) {
+                shrunkUsers.add(key.userId());
+            }
+        }
+
+        if (rows.isEmpty()) {
+            return;
+        }
+        monthlyRollupRepository.apply(deltas);
+
+        if (databaseDialect.isPostgres()) {
+            jdbcTemplate.batchUpdate(UPSERT_POSTGRES, rows);
+        } else if (databaseDialect.isSqlServer()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL_SERVER, rows);
+        } else {
+            for (Object[] row : rows) {
+                if (jdbcTemplate.update(UPDATE, row[3], row[4], row[5], row[0], row[1], row[2]) == 0) {
+                    jdbcTemplate.update(INSERT, row);
+                }
+            }
+        }
+
+        // Days and categories without any transactions left are dropped
+        for (Long userId : shrunkUsers) {
+            jdbcTemplate.update("DELETE FROM daily_user_category_rollup WHERE user_id = ? AND txn_count <= 0", userId);
+        }
+    }
+
+    /**
+     * Recompute the rollup of one user from financial_transactions
+     *
+     * @return Number of rollup rows written
+     */
+    @Transactional
+    public int rebuild(Long userId) {
+        jdbcTemplate.update("DELETE FROM daily_user_category_rollup WHERE user_id = ?", userId);
+        monthlyRollupRepository.rebuild(userId);
+        return jdbcTemplate.update(REBUILD_SELECT + "WHERE created_by = ?" + REBUILD_GROUP_BY, userId);
+    }
+
+    /**
+     * Recompute the rollup of all users from financial_transactions
+     *
+     * @return Number of rollup rows written
+     */
+    @Transactional
+    public int rebuildAll() {
+        jdbcTemplate.update("DELETE FROM daily_user_category_rollup");
+        monthlyRollupRepository.rebuildAll();
+        return jdbcTemplate.update(REBUILD_SELECT + "WHERE created_by IS NOT NULL" + REBUILD_GROUP_BY);
+    }
+
+    /**
+     * @return true if the rollup has no rows at all
+     */
+    public boolean isEmpty() {
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM daily_user_category_rollup", Integer.class);
+        return rows == null || rows == 0;
+    }
+
+    /**
+     * Income and expense totals of a user in a date range
+     */
+    public SignTotals sumBySign(Long userId, LocalDate startDate, LocalDate endDate) {
+        return jdbcTemplate.queryForObject(
+                "SELECT SUM(income_sum), SUM(expense_sum), SUM(txn_count) FROM daily_user_category_rollup WHERE " +
+                USER_AND_RANGE,
+                (rs, rowNum) -> new SignTotals(zeroIfNull(rs.getBigDecimal(1)), zeroIfNull(rs.getBigDecimal(2)), rs.getLong(3)),
+                userId, startDate, endDate);
+    }
+
+    /**
+     * Expense totals per category of a user in a date range. Transactions
+     * without a category are reported as "Uncategorized".
+     *
+     * @return Category name to total expenses, as positive amounts
+     */
+    public Map<String, BigDecimal> sumExpensesByCategory(Long userId, LocalDate startDate, LocalDate endDate) {
+        Map<String, BigDecimal> totals = new LinkedHashMap<>();
+
+        jdbcTemplate.query(
+                "SELECT category, SUM(expense_sum) FROM daily_user_category_rollup WHERE " + USER_AND_RANGE +
+                " AND expense_sum > 0 GROUP BY category",
+                rs -> {
+                    String category = rs.getString(1);
+                    if (category == null || category.isEmpty()) {
+                        category = "Uncategorized";
+                    }
+                    totals.merge(category, rs.getBigDecimal(2), BigDecimal::add);
+                },
+                userId, startDate, endDate);
+
+        return totals;
+    }
+
+    /**
+     * Income and expense totals of a user per day, in cents
+     *
+     * @return One entry per day that has transactions, ordered by day
+     */
+    public List<BucketTotals> sumByDay(Long userId, LocalDate startDate, LocalDate endDate) {
+        return jdbcTemplate.query(
+                "SELECT txn_date, " + DatabaseDialect.inCents("SUM(income_sum)") + ", " +
+                DatabaseDialect.inCents("SUM(expense_sum)") + ", SUM(txn_count) FROM daily_user_category_rollup " +
+                "WHERE " + USER_AND_RANGE + " GROUP BY txn_date ORDER BY txn_date",
+                (rs, rowNum) -> new BucketTotals(rs.getObject(1, LocalDate.class),
+                        rs.getLong(2), rs.getLong(3), rs.getLong(4)),
+                userId, startDate, endDate);
+    }
+
+    private static BigDecimal zeroIfNull(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    /**
+     * Changes to the rollup collected while writing transactions, summed
+     * per user, day and category in cents. Transactions without a user are
+     * not rolled up.
+     */
+    public static final class Deltas {
+
+        private final Map<Key, Totals> totals = new LinkedHashMap<>();
+
+        Map<Key, Totals> totals() {
+            return totals;
+        }
+
+        /**
+         * Count a transaction that was written
+         */
+        public Deltas add(Long userId, LocalDate day, String category, BigDecimal amount) {
+            return change(userId, day, category, amount, 1);
+        }
+
+        /**
+         * Take back a transaction that was removed, or the old values of one
+         * that was changed
+         */
+        public Deltas remove(Long userId, LocalDate day, String category, BigDecimal amount) {
+            return change(userId, day, category, amount, -1);
+        }
+
+        private Deltas change(Long userId, LocalDate day, String category, BigDecimal amount, int sign) {
+            if (userId == null || day == null || amount == null) {
+                return this;
+            }
+
+            Totals entry = totals.computeIfAbsent(
+                    new Key(userId, day, category != null ? category : ""), key -> new Totals());
+            long cents = MoneyAccumulator.toCents(amount);
+            if (cents > 0) {
+                entry.income += sign * cents;
+                entry.incomeCount += sign;
+            } else if (cents < 0) {
+                entry.expenses -= sign * cents;
+                entry.expenseCount += sign;
+            }
+            entry.count += sign;
+            return this;
+        }
+    }
+
+    record Key(Long userId, LocalDate day, String category) {
+    }
+
+    static final class Totals {
+        long income;
+        long expenses;
+        long incomeCount;
+        long expenseCount;
+        long count;
+    }
+}
@@ -0,0 +1,66 @@
+package com.datainsights.portal.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Tells the hand-written SQL which database it runs against. Locally the
+ * portal uses SQL Server, on Railway PostgreSQL; the product is read once
+ * from the JDBC metadata the first time it is needed.
+ */
+@Component
+public class DatabaseDialect {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseDialect.class);
+
+    private final DataSource dataSource;
+    private volatile String productName;
+
+    public DatabaseDialect(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @return true when connected to PostgreSQL
+     */
+    public boolean isPostgres() {
+        return getProductName().contains("postgresql");
+    }
+
+    /**
+     * @return true when connected to Microsoft SQL Server
+     */
+    public boolean isSqlServer() {
+        return getProductName().contains("microsoft sql server");
+    }
+
+    /**
+     * SQL for a money expression, e.g. a SUM over an amount column, as a
+     * whole number of cents, so it can be read with getLong instead of as
+     * a BigDecimal. Works the same on every supported database.
+     */
+    public static String inCents(String amount) {
+        return "CAST(ROUND((" + amount + ") * 100, 0) AS BIGINT)";
+    }
+
+    private String getProductName() {
+        String name = productName;
+        if (name == null) {
+            try (Connection connection = dataSource.getConnection()) {
+                name = connection.getMetaData().getDatabaseProductName().toLowerCase();
+            } catch (SQLException e) {
+                // Try again on the next call, fall back to the portable SQL meanwhile
+                logger.warn("Could not detect the database product: {}", e.getMessage());
+                return "";
+            }
+            productName = name;
+            logger.info("Using SQL dialect for {}", name);
+        }
+        return name;
+    }
+}
@@ -0,0 +1,124 @@
+package com.datainsights.portal.repository;
+
+import com.datainsights.portal.util.TimeInterval;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+/**
+ * Aggregate queries over financial_data. The database sums and groups the
+ * rows, so only one row per group crosses the wire instead of every
+ * transaction in the range.
+ * <p>
+ * Amounts above zero count as income, all others as expenses (reported as
+ * positive values). Grouped sums are read in cents.
+ */
+@Repository
+public class FinancialAggregateRepository {
+
+    private static final String SIGN_COLUMNS =
+            DatabaseDialect.inCents("SUM(CASE WHEN amount > 0 THEN amount ELSE 0 END)") + ", " +
+            DatabaseDialect.inCents("SUM(CASE WHEN amount > 0 THEN 0 ELSE -amount END)") + ", " +
+            "COUNT(*)";
+
+    private static final String USER_AND_RANGE =
+            "created_by = ? AND transaction_date BETWEEN ? AND ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect databaseDialect;
+
+    public FinancialAggregateRepository(JdbcTemplate jdbcTemplate, DatabaseDialect databaseDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.databaseDialect = databaseDialect;
+    }
+
+    /**
+     * Income and expense totals of a user per date bucket and category, in a
+     * single grouped query. Everything the analytics endpoints report can be
+     * derived from these rows.
+     *
+     * @param interval Interval of the buckets, weeks start on Monday. On
+     *                 databases without a truncation expression rows are
+     *                 grouped per day and the caller folds them into buckets.
+     * @param consumer Receives one row per bucket and category that has data
+     */
+    public void scanByBucketAndCategory(Long userId, LocalDate startDate, LocalDate endDate, TimeInterval interval,
+                                        Consumer<GroupTotals> consumer) {
+        String bucket = bucketExpression(interval);
+        String sql = "SELECT " + bucket + " AS bucket, category, " + SIGN_COLUMNS +
+                " FROM financial_data WHERE " + USER_AND_RANGE +
+                " GROUP BY " + bucket + ", category";
+
+        jdbcTemplate.query(sql,
+                rs -> {
+                    consumer.accept(new GroupTotals(rs.getObject(1, LocalDate.class), rs.getString(2),
+                            rs.getLong(3), rs.getLong(4), rs.getLong(5)));
+                },
+                userId, startDate, endDate);
+    }
+
+    /**
+     * SQL for the first day of the bucket a transaction date falls into
+     */
+    private String bucketExpression(TimeInterval interval) {
+        if (interval == TimeInterval.DAILY) {
+            return "transaction_date";
+        }
+
+        if (databaseDialect.isPostgres()) {
+            String field;
+            switch (interval) {
+                case WEEKLY:
+                    field = "week";
+                    break;
+                case QUARTERLY:
+                    field = "quarter";
+                    break;
+                case YEARLY:
+                    field = "year";
+                    break;
+                case MONTHLY:
+                default:
+                    field = "month";
+                    break;
+            }
+            return "CAST(date_trunc('" + field + "', transaction_date) AS date)";
+        }
+        if (databaseDialect.isSqlServer()) {
+            switch (interval) {
+                case WEEKLY:
+                    // 1900-01-01 was a Monday, so this is independent of the DATEFIRST setting
+                    return "DATEADD(day, -(DATEDIFF(day, '19000101', transaction_date) % 7), transaction_date)";
+                case QUARTERLY:
+                    return "DATEFROMPARTS(YEAR(transaction_date), (MONTH(transaction_date) - 1) / 3 * 3 + 1, 1)";
+                case YEARLY:
+                    return "DATEFROMPARTS(YEAR(transaction_date), 1, 1)";
+                case MONTHLY:
+                default:
+                    return "DATEFROMPARTS(YEAR(transaction_date), MONTH(transaction_date), 1)";
+            }
+        }
+        return "transaction_date";
+    }
+
+    /**
+     * Income and expense totals, expenses as a positive amount
+     */
+    public record SignTotals(BigDecimal income, BigDecimal expenses, long count) {
+    }
+
+    /**
+     * Totals of one date bucket, identified by its first day; amounts in cents
+     */
+    public record BucketTotals(LocalDate bucket, long income, long expenses, long count) {
+    }
+
+    /**
+     * Totals of one category within one date bucket; amounts in cents
+     */
+    public record GroupTotals(LocalDate bucket, String category, long income, long expenses, long count) {
+    }
+}
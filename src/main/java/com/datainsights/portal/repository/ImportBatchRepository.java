@@ -0,0 +1,232 @@
+package com.datainsights.portal.repository;
+
+import com.datainsights.portal.model.FinancialData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain JDBC writer for imported rows.
+ * Hibernate cannot batch inserts for IDENTITY keyed entities, so imports
+ * bypass the entity manager and write each batch with a single JDBC batch
+ * per table, or with COPY when running on PostgreSQL. The daily rollup is
+ * updated in the same transaction as each batch.
+ */
+@Repository
+public class ImportBatchRepository {
+
+    static final String TRANSACTION_COLUMNS =
+            "date, description, amount, category, type, account, created_at, is_reconciled, created_by, import_id, row_hash";
+
+    private static final String INSERT_TRANSACTION =
+            "INSERT INTO financial_transactions (" + TRANSACTION_COLUMNS + ") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_TRANSACTION_POSTGRES =
+            INSERT_TRANSACTION + " ON CONFLICT (created_by, row_hash) DO NOTHING";
+
+    private static final String INSERT_TRANSACTION_SQL_SERVER =
+            "MERGE financial_transactions WITH (HOLDLOCK) AS t " +
+            "USING (VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)) AS d (" + TRANSACTION_COLUMNS + ") " +
+            "ON t.created_by = d.created_by AND t.row_hash = d.row_hash " +
+            "WHEN NOT MATCHED THEN INSERT (" + TRANSACTION_COLUMNS + ") VALUES (d.date, d.description, d.amount, " +
+            "d.category, d.type, d.account, d.created_at, d.is_reconciled, d.created_by, d.import_id, d.row_hash);";
+
+    private static final String INSERT_FINANCIAL_DATA =
+            "INSERT INTO financial_data " +
+            "(transaction_date, amount, description, category, account_name, transaction_type, import_id, created_by, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_CHECKPOINT =
+            "UPDATE import_jobs SET rows_processed = ?, rows_failed = ?, rows_skipped = ?, " +
+            "last_committed_offset = ?, last_committed_row = ? WHERE id = ?";
+
+    /**
+     * Keeps the IN list well below the SQL Server limit of 2100 parameters
+     */
+    private static final int MAX_IN_PARAMETERS = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect databaseDialect;
+    private final PostgresCopyWriter postgresCopyWriter;
+    private final DailyRollupRepository dailyRollupRepository;
+    private final UserDataVersionRepository userDataVersionRepository;
+    private final boolean copyEnabled;
+
+    public ImportBatchRepository(JdbcTemplate jdbcTemplate, DatabaseDialect databaseDialect,
+                                 PostgresCopyWriter postgresCopyWriter, DailyRollupRepository dailyRollupRepository,
+                                 UserDataVersionRepository userDataVersionRepository,
+                                 @Value("${import.writer.copy-enabled:true}") boolean copyEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.databaseDialect = databaseDialect;
+        this.postgresCopyWriter = postgresCopyWriter;
+        this.dailyRollupRepository = dailyRollupRepository;
+        this.userDataVersionRepository = userDataVersionRepository;
+        this.copyEnabled = copyEnabled;
+    }
+
+    /**
+     * Find which of the given row hashes have already been imported by a user.
+     * This only sorts out rows imported earlier; rows written concurrently by
+     * another import are caught by the conflict-aware insert.
+     *
+     * @param userId The user ID
+     * @param rowHashes Hashes of the rows about to be inserted
+     * @return The hashes that exist, mapped to the import that wrote them
+     */
+    public Map<String, Long> findExistingRowHashes(Long userId, List<String> rowHashes) {
+        Map<String, Long> existing = new HashMap<>();
+
+        for (int from = 0; from < rowHashes.size(); from += MAX_IN_PARAMETERS) {
+            List<String> slice = rowHashes.subList(from, Math.min(from + MAX_IN_PARAMETERS, rowHashes.size()));
+            String sql = "SELECT row_hash, import_id FROM financial_transactions WHERE created_by = ? AND row_hash IN (" +
+                    String.join(", ", Collections.nCopies(slice.size(), "?")) + ")";
+
+            Object[] params = new Object[slice.size() + 1];
+            params[0] = userId;
+            for (int i = 0; i < slice.size(); i++) {
+                params[i + 1] = slice.get(i);
+            }
+            jdbcTemplate.query(sql, rs -> {
+                existing.put(rs.getString(1), rs.getObject(2, Long.class));
+            }, params);
+        }
+
+        return existing;
+    }
+
+    /**
+     * Insert one batch of imported rows into both the transaction and the
+     * financial data tables, add them to the daily rollup, move the user's
+     * data version and the checkpoint of the import forward, all in a single
+     * database transaction. After a crash the import is
+     * therefore either before or after the whole batch.
+     * <p>
+     * Rows whose (created_by, row_hash) already exists are left out by the
+     * insert itself, so two imports of the same file running at the same
+     * time cannot both write a row. The stored checkpoint adds the rows
+     * inserted to the processed count and the rows left out to the skipped
+     * count.
+     *
+     * @param rows The rows to insert, with importId and createdBy already set
+     * @param rowHashes The content hash of each row
+     * @param checkpoint Counts of the import before this batch, and the position after it
+     * @return Number of rows actually inserted
+     */
+    @Transactional
+    public int insertBatch(List<FinancialData> rows, List<String> rowHashes, Checkpoint checkpoint) {
+        List<FinancialData> inserted = rows;
+        if (!rows.isEmpty() && copyEnabled && databaseDialect.isPostgres()) {
+            inserted = postgresCopyWriter.copyBatch(rows, rowHashes);
+        } else if (!rows.isEmpty()) {
+            inserted = insertTransactions(rows, rowHashes);
+            if (!inserted.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_FINANCIAL_DATA, inserted, inserted.size(), (ps, row) -> {
+                    ps.setObject(1, row.getTransactionDate());
+                    ps.setBigDecimal(2, row.getAmount());
+                    ps.setString(3, truncate(row.getDescription(), 255));
+                    ps.setString(4, truncate(row.getCategory(), 255));
+                    ps.setString(5, truncate(row.getAccountName(), 255));
+                    ps.setString(6, truncate(row.getTransactionType(), 255));
+                    ps.setObject(7, row.getImportId());
+                    ps.setObject(8, row.getCreatedBy());
+                    ps.setObject(9, row.getCreatedAt());
+                });
+            }
+        }
+
+        if (!inserted.isEmpty()) {
+            DailyRollupRepository.Deltas deltas = new DailyRollupRepository.Deltas();
+            for (FinancialData row : inserted) {
+                deltas.add(row.getCreatedBy(), row.getTransactionDate(), truncate(row.getCategory(), 50), row.getAmount());
+            }
+            dailyRollupRepository.apply(deltas);
+            userDataVersionRepository.increment(inserted.get(0).getCreatedBy());
+        }
+
+        int conflicts = rows.size() - inserted.size();
+        jdbcTemplate.update(UPDATE_CHECKPOINT,
+                checkpoint.rowsProcessed() + inserted.size(), checkpoint.rowsFailed(), checkpoint.rowsSkipped() + conflicts,
+                checkpoint.offset(), checkpoint.rowNumber(), checkpoint.importId());
+        return inserted.size();
+    }
+
+    /**
+     * Insert the transaction rows of a batch, skipping rows whose hash the
+     * user already has
+     *
+     * @return The rows that were inserted
+     */
+    private List<FinancialData> insertTransactions(List<FinancialData> rows, List<String> rowHashes) {
+        String sql = databaseDialect.isPostgres() ? INSERT_TRANSACTION_POSTGRES
+                : databaseDialect.isSqlServer() ? INSERT_TRANSACTION_SQL_SERVER
+                : INSERT_TRANSACTION;
+        LocalDate today = LocalDate.now();
+        int[][] counts = jdbcTemplate.batchUpdate(sql, rows, rows.size(), new ParameterizedPreparedStatementSetter<>() {
+            private int index;
+
+            @Override
+            public void setValues(PreparedStatement ps, FinancialData row) throws SQLException {
+                ps.setObject(1, row.getTransactionDate());
+                ps.setString(2, truncate(row.getDescription() != null ? row.getDescription() : "Imported transaction", 255));
+                ps.setBigDecimal(3, row.getAmount());
+                ps.setString(4, truncate(row.getCategory(), 50));
+                ps.setString(5, row.getAmount().compareTo(BigDecimal.ZERO) > 0 ? "income" : "expense");
+                ps.setString(6, truncate(row.getAccountName() != null ? row.getAccountName() : "Default Account", 50));
+                ps.setObject(7, today);
+                ps.setBoolean(8, false);
+                ps.setObject(9, row.getCreatedBy());
+                ps.setObject(10, row.getImportId());
+                ps.setString(11, rowHashes.get(index++));
+            }
+        });
+
+        List<FinancialData> inserted = new ArrayList<>(rows.size());
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // SUCCESS_NO_INFO only comes from drivers that do not report per row, treat it as inserted
+                if (count != 0) {
+                    inserted.add(rows.get(index));
+                }
+                index++;
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Progress of an import handed to {@link #insertBatch}: the counts before
+     * the batch, which the batch adds its own rows to, and the position to
+     * resume from once it is committed
+     *
+     * @param importId The import job ID
+     * @param rowsProcessed Rows stored before the batch
+     * @param rowsFailed Rows rejected up to the checkpoint
+     * @param rowsSkipped Rows skipped before the batch because they had been imported before
+     * @param offset Byte offset to resume reading from
+     * @param rowNumber Number of data rows before that offset
+     */
+    public record Checkpoint(Long importId, int rowsProcessed, int rowsFailed, int rowsSkipped,
+                             long offset, long rowNumber) {
+    }
+
+    static String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, maxLength);
+    }
+}
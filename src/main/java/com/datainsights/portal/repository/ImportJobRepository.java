@@ -3,6 +3,8 @@ package com.datainsights.portal.repository;
 import com.datainsights.portal.model.ImportJob;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
@@ -14,4 +16,21 @@ public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
      * @return List of import jobs
      */
     List<ImportJob> findByCreatedByOrderByCreatedAtDesc(Long userId);
-}
\ No newline at end of file
+
+    /**
+     * Find import jobs in any of the given states
+     *
+     * @param statuses The job states
+     * @return List of import jobs, oldest first
+     */
+    List<ImportJob> findByStatusInOrderByCreatedAtAsc(Collection<String> statuses);
+
+    /**
+     * Find import jobs in a state that were created before a point in time
+     *
+     * @param status The job state
+     * @param createdBefore Upper bound for the creation time
+     * @return List of import jobs
+     */
+    List<ImportJob> findByStatusAndCreatedAtBefore(String status, LocalDateTime createdBefore);
+}
@@ -0,0 +1,207 @@
+package com.datainsights.portal.repository;
+
+import com.datainsights.portal.util.MoneyAccumulator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintains and reads monthly_user_category_rollup, the per user, month and
+ * category totals and counts of financial_transactions that the forecasts
+ * are computed from.
+ * <p>
+ * It is written through {@link DailyRollupRepository}, which folds its
+ * daily deltas into months here, so both rollups change in the same
+ * database transaction as the transactions themselves.
+ */
+@Repository
+public class MonthlyRollupRepository {
+
+    private static final String COLUMNS =
+            "user_id, month_id, category, income_sum, expense_sum, income_count, expense_count, txn_count";
+
+    private static final String UPSERT_POSTGRES =
+            "INSERT INTO monthly_user_category_rollup (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (user_id, month_id, category) DO UPDATE SET " +
+            "income_sum = monthly_user_category_rollup.income_sum + EXCLUDED.income_sum, " +
+            "expense_sum = monthly_user_category_rollup.expense_sum + EXCLUDED.expense_sum, " +
+            "income_count = monthly_user_category_rollup.income_count + EXCLUDED.income_count, " +
+            "expense_count = monthly_user_category_rollup.expense_count + EXCLUDED.expense_count, " +
+            "txn_count = monthly_user_category_rollup.txn_count + EXCLUDED.txn_count";
+
+    // HOLDLOCK keeps two concurrent merges of a new key from both inserting it
+    private static final String UPSERT_SQL_SERVER =
+            "MERGE monthly_user_category_rollup WITH (HOLDLOCK) AS r " +
+            "USING (VALUES (?, ?, ?, ?, ?, ?, ?, ?)) AS d (" + COLUMNS + ") " +
+            "ON r.user_id = d.user_id AND r.month_id = d.month_id AND r.category = d.category " +
+            "WHEN MATCHED THEN UPDATE SET income_sum = r.income_sum + d.income_sum, " +
+            "expense_sum = r.expense_sum + d.expense_sum, income_count = r.income_count + d.income_count, " +
+            "expense_count = r.expense_count + d.expense_count, txn_count = r.txn_count + d.txn_count " +
+            "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") " +
+            "VALUES (d.user_id, d.month_id, d.category, d.income_sum, d.expense_sum, d.income_count, " +
+            "d.expense_count, d.txn_count);";
+
+    private static final String UPDATE =
+            "UPDATE monthly_user_category_rollup SET income_sum = income_sum + ?, expense_sum = expense_sum + ?, " +
+            "income_count = income_count + ?, expense_count = expense_count + ?, txn_count = txn_count + ? " +
+            "WHERE user_id = ? AND month_id = ? AND category = ?";
+
+    private static final String INSERT =
+            "INSERT INTO monthly_user_category_rollup (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect databaseDialect;
+
+    public MonthlyRollupRepository(JdbcTemplate jdbcTemplate, DatabaseDialect databaseDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.databaseDialect = databaseDialect;
+    }
+
+    /**
+     * Add daily deltas to the monthly rollup. Must run inside the
+     * transaction that wrote the underlying rows.
+     */
+    void apply(DailyRollupRepository.Deltas deltas) {
+        Map<Key, DailyRollupRepository.Totals> months = new LinkedHashMap<>();
+        for (Map.Entry<DailyRollupRepository.Key, DailyRollupRepository.Totals> entry : deltas.totals().entrySet()) {
+            DailyRollupRepository.Key day = entry.getKey();
+            DailyRollupRepository.Totals totals = entry.getValue();
+            DailyRollupRepository.Totals month = months.computeIfAbsent(
+                    new Key(day.userId(), monthId(day.day().getYear(), day.day().getMonthValue()), day.category()),
+                    key -> new DailyRollupRepository.Totals());
+            month.income += totals.income;
+            month.expenses += totals.expenses;
+            month.incomeCount += totals.incomeCount;
+            month.expenseCount += totals.expenseCount;
+            month.count += totals.count;
+        }
+
+        List<Object[]> rows = new ArrayList<>(months.size());
+        Set<Long> shrunkUsers = new HashSet<>();
+        for (Map.Entry<Key, DailyRollupRepository.Totals> entry : months.entrySet()) {
+            Key key = entry.getKey();
+            DailyRollupRepository.Totals totals = entry.getValue();
+            if (totals.count == 0 && totals.income == 0 && totals.expenses == 0
+                    && totals.incomeCount == 0 && totals.expenseCount == 0) {
+                // A transaction that moved within the month
+                continue;
+            }
+            rows.add(new Object[]{key.userId(), key.monthId(), key.category(),
+                    MoneyAccumulator.toBigDecimal(totals.income), MoneyAccumulator.toBigDecimal(totals.expenses),
+                    totals.incomeCount, totals.expenseCount, totals.count});
+            if (totals.count < 0) {
+                shrunkUsers.add(key.userId());
+            }
+        }
+
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (databaseDialect.isPostgres()) {
+            jdbcTemplate.batchUpdate(UPSERT_POSTGRES, rows);
+        } else if (databaseDialect.isSqlServer()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL_SERVER, rows);
+        } else {
+            for (Object[] row : rows) {
+                if (jdbcTemplate.update(UPDATE, row[3], row[4], row[5], row[6], row[7], row[0], row[1], row[2]) == 0) {
+                    jdbcTemplate.update(INSERT, row);
+                }
+            }
+        }
+
+        // Months and categories without any transactions left are dropped
+        for (Long userId : shrunkUsers) {
+            jdbcTemplate.update("DELETE FROM monthly_user_category_rollup WHERE user_id = ? AND txn_count <= 0", userId);
+        }
+    }
+
+    /**
+     * Recompute the monthly rollup of one user from financial_transactions
+     *
+     * @return Number of rollup rows written
+     */
+    @Transactional
+    public int rebuild(Long userId) {
+        jdbcTemplate.update("DELETE FROM monthly_user_category_rollup WHERE user_id = ?", userId);
+        return jdbcTemplate.update(rebuildSelect() + "WHERE created_by = ?" + rebuildGroupBy(), userId);
+    }
+
+    /**
+     * Recompute the monthly rollup of all users from financial_transactions
+     *
+     * @return Number of rollup rows written
+     */
+    @Transactional
+    public int rebuildAll() {
+        jdbcTemplate.update("DELETE FROM monthly_user_category_rollup");
+        return jdbcTemplate.update(rebuildSelect() + "WHERE created_by IS NOT NULL" + rebuildGroupBy());
+    }
+
+    /**
+     * @return true if the rollup has no rows at all
+     */
+    public boolean isEmpty() {
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM monthly_user_category_rollup", Integer.class);
+        return rows == null || rows == 0;
+    }
+
+    /**
+     * All monthly rows of a user, ordered by month
+     */
+    public List<MonthlyTotals> findByUser(Long userId) {
+        return jdbcTemplate.query(
+                "SELECT month_id, category, " + DatabaseDialect.inCents("income_sum") + ", " +
+                DatabaseDialect.inCents("expense_sum") + ", income_count, expense_count, txn_count " +
+                "FROM monthly_user_category_rollup WHERE user_id = ? ORDER BY month_id",
+                (rs, rowNum) -> new MonthlyTotals(rs.getInt(1), rs.getString(2),
+                        rs.getLong(3), rs.getLong(4), rs.getLong(5), rs.getLong(6), rs.getLong(7)),
+                userId);
+    }
+
+    /**
+     * @return The month id of a year and month (1-12)
+     */
+    public static int monthId(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    private String rebuildSelect() {
+        return "INSERT INTO monthly_user_category_rollup (" + COLUMNS + ") " +
+                "SELECT created_by, " + monthIdExpression() + ", COALESCE(category, ''), " +
+                "SUM(CASE WHEN amount > 0 THEN amount ELSE 0 END), " +
+                "SUM(CASE WHEN amount < 0 THEN -amount ELSE 0 END), " +
+                "SUM(CASE WHEN amount > 0 THEN 1 ELSE 0 END), " +
+                "SUM(CASE WHEN amount < 0 THEN 1 ELSE 0 END), " +
+                "COUNT(*) FROM financial_transactions ";
+    }
+
+    private String rebuildGroupBy() {
+        return " GROUP BY created_by, " + monthIdExpression() + ", COALESCE(category, '')";
+    }
+
+    private String monthIdExpression() {
+        if (databaseDialect.isSqlServer()) {
+            return "(YEAR(date) * 12 + MONTH(date) - 1)";
+        }
+        return "(CAST(EXTRACT(YEAR FROM date) AS INTEGER) * 12 + CAST(EXTRACT(MONTH FROM date) AS INTEGER) - 1)";
+    }
+
+    private record Key(Long userId, int monthId, String category) {
+    }
+
+    /**
+     * Totals of one month and category; amounts are positive and in cents,
+     * transactions without a category are under ""
+     */
+    public record MonthlyTotals(int monthId, String category, long income, long expenses,
+                                long incomeCount, long expenseCount, long count) {
+    }
+}
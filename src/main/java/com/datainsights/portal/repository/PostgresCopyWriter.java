@@ -0,0 +1,160 @@
+package com.datainsights.portal.repository;
+
+import com.datainsights.portal.model.FinancialData;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads imported rows into PostgreSQL with COPY ... FROM STDIN. COPY streams
+ * all rows of a batch in one protocol message instead of one INSERT per row,
+ * which is by far the fastest way to bulk load PostgreSQL. It runs on the
+ * connection of the current transaction, so it commits or rolls back
+ * together with the rest of the batch.
+ * <p>
+ * COPY cannot skip conflicting rows, so transactions are copied into a
+ * session-local staging table first and moved over with
+ * INSERT ... ON CONFLICT DO NOTHING. Only the rows that were actually
+ * inserted get a financial data row.
+ */
+@Component
+public class PostgresCopyWriter {
+
+    /**
+     * Has the columns of financial_transactions without their constraints,
+     * and is emptied at the end of every transaction
+     */
+    private static final String CREATE_STAGING =
+            "CREATE TEMPORARY TABLE IF NOT EXISTS import_transactions_staging ON COMMIT DELETE ROWS AS " +
+            "SELECT " + ImportBatchRepository.TRANSACTION_COLUMNS + " FROM financial_transactions WITH NO DATA";
+
+    private static final String COPY_TRANSACTIONS =
+            "COPY import_transactions_staging (" + ImportBatchRepository.TRANSACTION_COLUMNS + ") " +
+            "FROM STDIN WITH (FORMAT csv)";
+
+    private static final String MOVE_STAGED_TRANSACTIONS =
+            "INSERT INTO financial_transactions (" + ImportBatchRepository.TRANSACTION_COLUMNS + ") " +
+            "SELECT " + ImportBatchRepository.TRANSACTION_COLUMNS + " FROM import_transactions_staging " +
+            "ON CONFLICT (created_by, row_hash) DO NOTHING RETURNING row_hash";
+
+    private static final String CLEAR_STAGING = "TRUNCATE import_transactions_staging";
+
+    private static final String COPY_FINANCIAL_DATA =
+            "COPY financial_data " +
+            "(transaction_date, amount, description, category, account_name, transaction_type, import_id, created_by, created_at) " +
+            "FROM STDIN WITH (FORMAT csv)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PostgresCopyWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Copy one batch into both the transaction and the financial data
+     * tables, with the same column values as the JDBC batch insert. Rows
+     * whose (created_by, row_hash) already exists are skipped.
+     *
+     * @param rows The rows to insert, with importId and createdBy already set
+     * @param rowHashes The content hash of each row
+     * @return The rows that were inserted
+     */
+    public List<FinancialData> copyBatch(List<FinancialData> rows, List<String> rowHashes) {
+        LocalDate today = LocalDate.now();
+
+        StringBuilder transactions = new StringBuilder(rows.size() * 160);
+        for (int i = 0; i < rows.size(); i++) {
+            FinancialData row = rows.get(i);
+
+            field(transactions, row.getTransactionDate(), false);
+            field(transactions, ImportBatchRepository.truncate(
+                    row.getDescription() != null ? row.getDescription() : "Imported transaction", 255), false);
+            field(transactions, row.getAmount(), false);
+            field(transactions, ImportBatchRepository.truncate(row.getCategory(), 50), false);
+            field(transactions, row.getAmount().compareTo(BigDecimal.ZERO) > 0 ? "income" : "expense", false);
+            field(transactions, ImportBatchRepository.truncate(
+                    row.getAccountName() != null ? row.getAccountName() : "Default Account", 50), false);
+            field(transactions, today, false);
+            field(transactions, false, false);
+            field(transactions, row.getCreatedBy(), false);
+            field(transactions, row.getImportId(), false);
+            field(transactions, rowHashes.get(i), true);
+        }
+
+        jdbcTemplate.execute(CREATE_STAGING);
+        // Emptied on commit as well, this covers several batches in one outer transaction
+        jdbcTemplate.execute(CLEAR_STAGING);
+        copy(COPY_TRANSACTIONS, transactions);
+        Set<String> insertedHashes = new HashSet<>(
+                jdbcTemplate.queryForList(MOVE_STAGED_TRANSACTIONS, String.class));
+
+        List<FinancialData> inserted = rows;
+        if (insertedHashes.size() < rows.size()) {
+            inserted = new ArrayList<>(insertedHashes.size());
+            for (int i = 0; i < rows.size(); i++) {
+                if (insertedHashes.contains(rowHashes.get(i))) {
+                    inserted.add(rows.get(i));
+                }
+            }
+        }
+        if (inserted.isEmpty()) {
+            return inserted;
+        }
+
+        StringBuilder financialData = new StringBuilder(inserted.size() * 160);
+        for (FinancialData row : inserted) {
+            field(financialData, row.getTransactionDate(), false);
+            field(financialData, row.getAmount(), false);
+            field(financialData, ImportBatchRepository.truncate(row.getDescription(), 255), false);
+            field(financialData, ImportBatchRepository.truncate(row.getCategory(), 255), false);
+            field(financialData, ImportBatchRepository.truncate(row.getAccountName(), 255), false);
+            field(financialData, ImportBatchRepository.truncate(row.getTransactionType(), 255), false);
+            field(financialData, row.getImportId(), false);
+            field(financialData, row.getCreatedBy(), false);
+            field(financialData, row.getCreatedAt(), true);
+        }
+        copy(COPY_FINANCIAL_DATA, financialData);
+        return inserted;
+    }
+
+    private void copy(String sql, CharSequence data) {
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, new StringReader(data.toString()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Append a CSV field. In COPY's CSV format an unquoted empty field is
+     * NULL, so every non-null value is quoted.
+     */
+    private static void field(StringBuilder out, Object value, boolean last) {
+        if (value != null) {
+            String text = value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+            out.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"') {
+                    out.append('"');
+                }
+                out.append(c);
+            }
+            out.append('"');
+        }
+        out.append(last ? '\n' : ',');
+    }
+}
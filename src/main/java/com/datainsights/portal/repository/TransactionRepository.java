@@ -54,6 +54,10 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     // Find transactions by createdBy (user ID)
     List<Transaction> findByCreatedBy(Long userId);
 
+    // Date, amount and category of a user's transactions, ordered by date
+    @Query("SELECT t.date, t.amount, t.category FROM Transaction t WHERE t.createdBy = :userId ORDER BY t.date, t.id")
+    List<Object[]> findColumnsByCreatedBy(@Param("userId") Long userId);
+
     // Find transactions by user ID and type
     @Query("SELECT t FROM Transaction t WHERE t.createdBy = :userId AND " +
             "CASE WHEN :type = 'INCOME' THEN t.amount > 0 " +
@@ -91,11 +95,23 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     @Query("SELECT COALESCE(SUM(ABS(t.amount)), 0) FROM Transaction t WHERE t.createdBy = :userId AND t.amount < 0 AND t.date BETWEEN :startDate AND :endDate")
     BigDecimal sumExpensesByUserAndDateRange(@Param("userId") Long userId, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
 
+    // Sum of absolute amounts by user ID and category
+    @Query("SELECT COALESCE(SUM(ABS(t.amount)), 0) FROM Transaction t WHERE t.createdBy = :userId AND t.category = :category")
+    BigDecimal sumAbsoluteByUserAndCategory(@Param("userId") Long userId, @Param("category") String category);
+
+    // Sum of absolute amounts by user ID, category and date range
+    @Query("SELECT COALESCE(SUM(ABS(t.amount)), 0) FROM Transaction t WHERE t.createdBy = :userId AND t.category = :category AND t.date BETWEEN :startDate AND :endDate")
+    BigDecimal sumAbsoluteByUserAndCategoryAndDateRange(@Param("userId") Long userId, @Param("category") String category, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
     // NEW METHODS FOR DASHBOARD:
 
     // Count transactions in a date range for a user
     int countByCreatedByAndDateBetween(Long userId, LocalDate startDate, LocalDate endDate);
 
+    // Count the distinct imports that wrote transactions of a user in a date range
+    @Query("SELECT COUNT(DISTINCT t.importId) FROM Transaction t WHERE t.createdBy = :userId AND t.date BETWEEN :startDate AND :endDate")
+    int countDistinctImportsByUserAndDateRange(@Param("userId") Long userId, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
     // Find transactions by user with date range and order by date (descending)
     List<Transaction> findByCreatedByAndDateBetweenOrderByDateDesc(
             Long userId, LocalDate startDate, LocalDate endDate);
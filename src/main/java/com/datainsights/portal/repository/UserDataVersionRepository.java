@@ -0,0 +1,60 @@
+package com.datainsights.portal.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Reads and increments the data version of a user in user_data_versions.
+ * The increment is an upsert, so the first change of a user creates the
+ * row without racing a concurrent writer.
+ */
+@Repository
+public class UserDataVersionRepository {
+
+    private static final String UPSERT_POSTGRES =
+            "INSERT INTO user_data_versions (user_id, version, updated_at) VALUES (?, 1, ?) " +
+            "ON CONFLICT (user_id) DO UPDATE SET version = user_data_versions.version + 1, " +
+            "updated_at = EXCLUDED.updated_at";
+
+    private static final String UPSERT_SQL_SERVER =
+            "MERGE user_data_versions WITH (HOLDLOCK) AS v " +
+            "USING (VALUES (?, ?)) AS d (user_id, updated_at) ON v.user_id = d.user_id " +
+            "WHEN MATCHED THEN UPDATE SET version = v.version + 1, updated_at = d.updated_at " +
+            "WHEN NOT MATCHED THEN INSERT (user_id, version, updated_at) VALUES (d.user_id, 1, d.updated_at);";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect databaseDialect;
+
+    public UserDataVersionRepository(JdbcTemplate jdbcTemplate, DatabaseDialect databaseDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.databaseDialect = databaseDialect;
+    }
+
+    /**
+     * @return The current data version of a user, 0 if their data never changed
+     */
+    public long current(Long userId) {
+        List<Long> versions = jdbcTemplate.queryForList(
+                "SELECT version FROM user_data_versions WHERE user_id = ?", Long.class, userId);
+        return versions.isEmpty() ? 0L : versions.get(0);
+    }
+
+    /**
+     * Move the data version of a user forward. Must run inside the
+     * transaction that changes the user's data.
+     */
+    public void increment(Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (databaseDialect.isPostgres()) {
+            jdbcTemplate.update(UPSERT_POSTGRES, userId, now);
+        } else if (databaseDialect.isSqlServer()) {
+            jdbcTemplate.update(UPSERT_SQL_SERVER, userId, now);
+        } else if (jdbcTemplate.update(
+                "UPDATE user_data_versions SET version = version + 1, updated_at = ? WHERE user_id = ?", now, userId) == 0) {
+            jdbcTemplate.update("INSERT INTO user_data_versions (user_id, version, updated_at) VALUES (?, 1, ?)", userId, now);
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package com.datainsights.portal.repository.mongo;
 
 import com.datainsights.portal.model.mongo.AnalyticsResult;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository for accessing analytics results in MongoDB
@@ -13,12 +18,34 @@ import java.util.List;
 public interface AnalyticsResultRepository extends MongoRepository<AnalyticsResult, String> {
 
     /**
-     * Find analytics results by user ID, ordered by creation date (descending)
+     * First page of a user's analytics history, newest first, without the
+     * results payload
      */
-    List<AnalyticsResult> findByCreatedByOrderByCreatedAtDesc(Long createdBy);
+    @Query(value = "{ 'createdBy': ?0 }", fields = "{ 'results': 0 }", sort = "{ 'createdAt': -1, '_id': -1 }")
+    List<AnalyticsResult> findHistory(Long createdBy, Limit limit);
+
+    /**
+     * Page of a user's analytics history after a (createdAt, id) position,
+     * newest first, without the results payload
+     */
+    @Query(value = "{ 'createdBy': ?0, '$or': [ { 'createdAt': { '$lt': ?1 } }, " +
+            "{ 'createdAt': ?1, '_id': { '$lt': ?2 } } ] }",
+            fields = "{ 'results': 0 }", sort = "{ 'createdAt': -1, '_id': -1 }")
+    List<AnalyticsResult> findHistoryAfter(Long createdBy, LocalDateTime createdAt, ObjectId id, Limit limit);
+
+    /**
+     * Find one analytics result of a user, including its results
+     */
+    Optional<AnalyticsResult> findByIdAndCreatedBy(String id, Long createdBy);
 
     /**
      * Find analytics results by type and user ID
      */
     List<AnalyticsResult> findByTypeAndCreatedBy(String type, Long createdBy);
+
+    /**
+     * Find the latest stored result of an analysis computed at a given data version
+     */
+    Optional<AnalyticsResult> findFirstByCreatedByAndTypeAndParametersHashAndDataVersionOrderByCreatedAtDesc(
+            Long createdBy, String type, String parametersHash, Long dataVersion);
 }
@@ -4,8 +4,17 @@ import com.datainsights.portal.model.mongo.RawImportData;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.stream.Stream;
+
 @Repository
 public interface RawImportDataRepository extends MongoRepository<RawImportData, String> {
 
-    RawImportData findByImportJobId(Long importJobId);
-}
\ No newline at end of file
+    /**
+     * Stream the archived batches of an import in row order, one document at a time
+     */
+    Stream<RawImportData> findByImportJobIdOrderByBatchIndexAsc(Long importJobId);
+
+    long countByImportJobId(Long importJobId);
+
+    long deleteByImportJobId(Long importJobId);
+}
@@ -1,5 +1,6 @@
 package com.datainsights.portal.service;
 
+import com.datainsights.portal.dto.AnalyticsHistoryCursor;
 import com.datainsights.portal.model.mongo.AnalyticsResult;
 import org.springframework.security.core.Authentication;
 
@@ -37,28 +38,54 @@ public interface AnalyticsService {
      *
      * @param startDate Beginning of the analysis period
      * @param endDate End of the analysis period
-     * @param interval Time interval for grouping (daily, weekly, monthly)
+     * @param interval Time interval for grouping (daily, weekly, monthly, quarterly, yearly)
      * @param authentication Current user's authentication
      * @return List of maps containing date/time intervals and corresponding values
      */
     List<Map<String, Object>> getFinancialTrends(LocalDate startDate, LocalDate endDate, String interval, Authentication authentication);
 
     /**
-     * Save analytics result to MongoDB for future reference
+     * Generate the summary, category breakdown and trends of a date range
+     * together, from a single pass over the user's data
+     *
+     * @param startDate Beginning of the analysis period
+     * @param endDate End of the analysis period
+     * @param interval Time interval for grouping the trends (daily, weekly, monthly, quarterly, yearly)
+     * @param authentication Current user's authentication
+     * @return Map with "summary", "categories" and "trends", each shaped like the separate endpoints
+     */
+    Map<String, Object> getAnalyticsOverview(LocalDate startDate, LocalDate endDate, String interval, Authentication authentication);
+
+    /**
+     * Save analytics result to MongoDB for future reference. The result is
+     * queued and written in the background, so it may take a moment to
+     * appear in the history.
      *
      * @param type Type of analysis (SUMMARY, CATEGORY, TREND)
      * @param parameters Parameters used for the analysis
      * @param results Analysis results
      * @param authentication Current user's authentication
-     * @return The saved analytics result
+     * @return The queued analytics result, without an ID until it is written
      */
     AnalyticsResult saveAnalyticsResult(String type, Map<String, Object> parameters, Map<String, Object> results, Authentication authentication);
 
     /**
-     * Get history of saved analytics results
+     * Get one page of the saved analytics results, newest first. The
+     * entries leave out the results payload.
+     *
+     * @param cursor Position after which the page starts, null for the first page
+     * @param limit Maximum number of entries on the page
+     * @param authentication Current user's authentication
+     * @return {"items": [...], "nextCursor": "..."}; nextCursor is null on the last page
+     */
+    Map<String, Object> getAnalyticsHistory(AnalyticsHistoryCursor cursor, int limit, Authentication authentication);
+
+    /**
+     * Get one saved analytics result including its results
      *
+     * @param id The analytics result ID
      * @param authentication Current user's authentication
-     * @return List of previous analytics results
+     * @return The analytics result, or null if the user has none with this ID
      */
-    List<AnalyticsResult> getAnalyticsHistory(Authentication authentication);
+    AnalyticsResult getAnalyticsResult(String id, Authentication authentication);
 }
\ No newline at end of file
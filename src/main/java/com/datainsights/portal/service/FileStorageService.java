@@ -3,7 +3,40 @@ package com.datainsights.portal.service;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.nio.file.Path;
+
 public interface FileStorageService {
     String storeFile(MultipartFile file);
     Resource loadFileAsResource(String fileName);
-}
\ No newline at end of file
+    Path getFilePath(String fileName);
+    boolean deleteFile(String fileName);
+
+    /**
+     * Create an empty file that a chunked upload is appended to
+     *
+     * @param originalFileName The name of the file on the client
+     * @return The stored file name
+     */
+    String createEmptyFile(String originalFileName);
+
+    /**
+     * Append one chunk of a chunked upload. The chunk must start exactly at
+     * the current end of the file; if it cannot be written completely the
+     * file is truncated back to the offset so the chunk can be sent again.
+     *
+     * @param fileName The stored file name
+     * @param offset Byte offset the chunk starts at
+     * @param data The chunk content
+     * @param maxChunkBytes Largest chunk that is accepted
+     * @return The size of the file after the chunk was appended
+     * @throws IllegalStateException if the offset is not the current end of the file
+     *                               or another chunk is being written at the same time
+     */
+    long appendChunk(String fileName, long offset, InputStream data, long maxChunkBytes);
+
+    /**
+     * @return The current size of a stored file, in bytes
+     */
+    long getFileSize(String fileName);
+}
@@ -13,4 +13,5 @@ public interface FinancialGoalService {
     void deleteGoal(Long id, User user);
     FinancialGoal addContribution(Long id, Double amount, User user);
     Map<String, Object> getGoalProgress(Long id, User user);
+    Map<String, Object> getGoalForecast(Long id, User user, int paths);
 }
\ No newline at end of file
@@ -8,7 +8,12 @@ import java.util.Map;
 public interface ForecastService {
     List<Map<String, Object>> generateForecast(User user, int months);
     List<Map<String, Object>> generateIncomeProjection(User user, int months);
+    List<Map<String, Object>> generateIncomeProjection(User user, int months, int parallelism);
     List<Map<String, Object>> generateExpenseProjection(User user, int months);
+    List<Map<String, Object>> generateExpenseProjection(User user, int months, int parallelism);
     List<Map<String, Object>> generateSavingsProjection(User user, int months);
+    List<Map<String, Object>> generateSavingsSimulation(User user, int months, int paths);
+    Map<String, Object> generateAllForecasts(User user, int months);
+    Map<String, Object> generateAllForecasts(User user, int months, int parallelism);
     Map<String, Object> generateCustomForecast(User user, LocalDate startDate, LocalDate endDate);
 }
\ No newline at end of file
@@ -4,12 +4,18 @@ import com.datainsights.portal.model.ImportJob;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
 
 public interface ImportService {
 
     /**
-     * Process an imported file and create an import job
+     * Store an imported file and queue it for background processing.
+     * The returned job is still queued; its status and progress counters
+     * are updated while a worker streams the file.
      *
      * @param file The uploaded file
      * @param category The category of data (income, expense, etc.)
@@ -17,9 +23,60 @@ public interface ImportService {
      * @param description Optional description for the import
      * @param authentication The authenticated user
      * @return The created ImportJob
+     * @throws org.springframework.core.task.TaskRejectedException if the import queue is full
      */
     ImportJob processImportFile(MultipartFile file, String category, String importType, String description, Authentication authentication);
 
+    /**
+     * Start a chunked upload for files too large for a single multipart
+     * request. The returned job has status "uploading" and its ID is used to
+     * send the chunks.
+     *
+     * @param fileName The name of the file on the client
+     * @param totalSize The size of the complete file in bytes
+     * @param category The category of data (income, expense, etc.)
+     * @param importType The type of import (append, replace)
+     * @param description Optional description for the import
+     * @param authentication The authenticated user
+     * @return The created ImportJob
+     * @throws IllegalArgumentException if the file type or size is not accepted
+     */
+    ImportJob startChunkedUpload(String fileName, long totalSize, String category, String importType,
+                                 String description, Authentication authentication);
+
+    /**
+     * Append the next chunk of a chunked upload
+     *
+     * @param id The import job ID
+     * @param offset Byte offset of the chunk, must equal the bytes received so far
+     * @param data The chunk content
+     * @param authentication The authenticated user
+     * @return Bytes received so far, or -1 if the upload was not found
+     * @throws IllegalStateException if the offset does not match or the upload is no longer open
+     * @throws IllegalArgumentException if the chunk is too large or goes past the declared size
+     */
+    long appendUploadChunk(Long id, long offset, InputStream data, Authentication authentication);
+
+    /**
+     * Get the number of bytes received for a chunked upload, to resume it
+     *
+     * @param id The import job ID
+     * @param authentication The authenticated user
+     * @return Bytes received so far, or -1 if the upload was not found
+     */
+    long getUploadedBytes(Long id, Authentication authentication);
+
+    /**
+     * Finish a chunked upload and queue the assembled file for import
+     *
+     * @param id The import job ID
+     * @param authentication The authenticated user
+     * @return The queued ImportJob, or null if the upload was not found
+     * @throws IllegalStateException if the upload is not complete or no longer open
+     * @throws org.springframework.core.task.TaskRejectedException if the import queue is full
+     */
+    ImportJob completeChunkedUpload(Long id, Authentication authentication);
+
     /**
      * Get the import history for the authenticated user
      *
@@ -45,4 +102,37 @@ public interface ImportService {
      * @return true if deleted successfully, false otherwise
      */
     boolean deleteImportJob(Long id, Authentication authentication);
-}
\ No newline at end of file
+
+    /**
+     * Re-read the stored file of an import job and summarize it without
+     * writing anything. The file is read through a memory mapping, so this
+     * is cheap even for very large imports.
+     *
+     * @param id The import job ID
+     * @param authentication The authenticated user
+     * @return Row counts, totals, date range and category counts, or null if the job was not found
+     * @throws IllegalArgumentException if the stored file is not a CSV file or no longer exists
+     * @throws IOException if reading the file fails
+     */
+    Map<String, Object> validateStoredImport(Long id, Authentication authentication) throws IOException;
+
+    /**
+     * Check whether the original rows of an import have been archived
+     *
+     * @param id The import job ID
+     * @param authentication The authenticated user
+     * @return true if the import belongs to the user and has an archive
+     */
+    boolean hasArchivedRows(Long id, Authentication authentication);
+
+    /**
+     * Write the archived original rows of an import as CSV text
+     *
+     * @param id The import job ID
+     * @param authentication The authenticated user
+     * @param out Receives the CSV text
+     * @return Number of rows written
+     * @throws IOException if writing fails
+     */
+    long exportArchivedRows(Long id, Authentication authentication, OutputStream out) throws IOException;
+}
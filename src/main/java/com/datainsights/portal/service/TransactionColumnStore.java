@@ -0,0 +1,42 @@
+package com.datainsights.portal.service;
+
+import com.datainsights.portal.util.UserTransactionColumns;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Keeps the transactions of active users in memory as
+ * {@link UserTransactionColumns}. Writers report their changes here so the
+ * cached columns stay in step with the database.
+ */
+public interface TransactionColumnStore {
+
+    /**
+     * @return true if columns are cached; when false every {@link #get} reads the database
+     */
+    boolean isEnabled();
+
+    /**
+     * @param userId The user ID
+     * @return The transactions of a user as columns
+     */
+    UserTransactionColumns get(Long userId);
+
+    /**
+     * Add a written transaction to the user's columns once the current
+     * database transaction commits
+     */
+    void transactionAdded(Long userId, LocalDate date, BigDecimal amount, String category);
+
+    /**
+     * Take a removed transaction, or the old values of a changed one, out of
+     * the user's columns once the current database transaction commits
+     */
+    void transactionRemoved(Long userId, LocalDate date, BigDecimal amount, String category);
+
+    /**
+     * Drop the cached columns of a user, e.g. after an import
+     */
+    void evict(Long userId);
+}
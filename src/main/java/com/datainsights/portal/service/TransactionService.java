@@ -1,8 +1,12 @@
 package com.datainsights.portal.service;
 
+import com.datainsights.portal.event.TransactionDataChangedEvent;
 import com.datainsights.portal.model.Transaction;
+import com.datainsights.portal.repository.DailyRollupRepository;
 import com.datainsights.portal.repository.TransactionRepository;
+import com.datainsights.portal.repository.UserDataVersionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,10 +18,22 @@ import java.util.*;
 public class TransactionService {
 
     private final TransactionRepository transactionRepository;
+    private final DailyRollupRepository dailyRollupRepository;
+    private final UserDataVersionRepository userDataVersionRepository;
+    private final TransactionColumnStore transactionColumnStore;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public TransactionService(TransactionRepository transactionRepository) {
+    public TransactionService(TransactionRepository transactionRepository,
+                              DailyRollupRepository dailyRollupRepository,
+                              UserDataVersionRepository userDataVersionRepository,
+                              TransactionColumnStore transactionColumnStore,
+                              ApplicationEventPublisher eventPublisher) {
         this.transactionRepository = transactionRepository;
+        this.dailyRollupRepository = dailyRollupRepository;
+        this.userDataVersionRepository = userDataVersionRepository;
+        this.transactionColumnStore = transactionColumnStore;
+        this.eventPublisher = eventPublisher;
 
         // Initialize with sample data if the repository is empty
         if (transactionRepository.count() == 0) {
@@ -100,7 +116,13 @@ public class TransactionService {
             transaction.setAccount("Default Account");
         }
 
-        return transactionRepository.save(transaction);
+        Transaction saved = transactionRepository.save(transaction);
+        dailyRollupRepository.apply(new DailyRollupRepository.Deltas().add(
+                saved.getCreatedBy(), saved.getDate(), saved.getCategory(), saved.getAmount()));
+        transactionColumnStore.transactionAdded(
+                saved.getCreatedBy(), saved.getDate(), saved.getAmount(), saved.getCategory());
+        publishChange(saved.getCreatedBy());
+        return saved;
     }
 
     @Transactional
@@ -108,6 +130,13 @@ public class TransactionService {
         Transaction existingTransaction = transactionRepository.findById(id)
                 .orElseThrow(() -> new NoSuchElementException("Transaction not found with id: " + id));
 
+        // Take the old values out of the daily rollup before they change
+        DailyRollupRepository.Deltas deltas = new DailyRollupRepository.Deltas().remove(
+                existingTransaction.getCreatedBy(), existingTransaction.getDate(),
+                existingTransaction.getCategory(), existingTransaction.getAmount());
+        transactionColumnStore.transactionRemoved(existingTransaction.getCreatedBy(), existingTransaction.getDate(),
+                existingTransaction.getAmount(), existingTransaction.getCategory());
+
         // Update fields if provided
         if (updatedTransaction.getDate() != null) {
             existingTransaction.setDate(updatedTransaction.getDate());
@@ -134,18 +163,43 @@ public class TransactionService {
         }
 
         // Save updated transaction
-        return transactionRepository.save(existingTransaction);
+        Transaction saved = transactionRepository.save(existingTransaction);
+        dailyRollupRepository.apply(deltas.add(
+                saved.getCreatedBy(), saved.getDate(), saved.getCategory(), saved.getAmount()));
+        transactionColumnStore.transactionAdded(
+                saved.getCreatedBy(), saved.getDate(), saved.getAmount(), saved.getCategory());
+        publishChange(saved.getCreatedBy());
+        return saved;
     }
 
     @Transactional
     public boolean deleteTransaction(Long id) {
-        if (transactionRepository.existsById(id)) {
-            transactionRepository.deleteById(id);
+        Optional<Transaction> transaction = transactionRepository.findById(id);
+        if (transaction.isPresent()) {
+            Transaction existing = transaction.get();
+            transactionRepository.delete(existing);
+            dailyRollupRepository.apply(new DailyRollupRepository.Deltas().remove(
+                    existing.getCreatedBy(), existing.getDate(), existing.getCategory(), existing.getAmount()));
+            transactionColumnStore.transactionRemoved(
+                    existing.getCreatedBy(), existing.getDate(), existing.getAmount(), existing.getCategory());
+            publishChange(existing.getCreatedBy());
             return true;
         }
         return false;
     }
 
+    /**
+     * Move the user's data version forward and tell listeners such as the
+     * analytics cache that their data changed. Transactional listeners
+     * receive it once the change is committed.
+     */
+    private void publishChange(Long userId) {
+        if (userId != null) {
+            userDataVersionRepository.increment(userId);
+            eventPublisher.publishEvent(new TransactionDataChangedEvent(userId));
+        }
+    }
+
     public Map<String, List<String>> getTransactionCategories() {
         List<String> defaultIncomeCategories = Arrays.asList(
                 "Salary", "Investments", "Gifts", "Other Income");
@@ -0,0 +1,166 @@
+package com.datainsights.portal.service.impl;
+
+import com.datainsights.portal.model.mongo.AnalyticsResult;
+import com.datainsights.portal.repository.mongo.AnalyticsResultRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind queue for analytics results. Requests only enqueue their
+ * result; a flush on the writer's own thread saves the queued documents
+ * to Mongo with one insertMany per batch, so neither Mongo latency nor
+ * Mongo outages reach the analytics endpoints or the scheduled jobs.
+ * <p>
+ * The queue is bounded. When it is full the overflow policy either drops
+ * the oldest queued result to make room (drop-oldest, the default) or
+ * discards the new one (drop-newest). Queued results are flushed on
+ * shutdown. The queue length and the dropped and failed results are
+ * published as metrics.
+ */
+@Component
+public class AnalyticsResultWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsResultWriter.class);
+
+    private static final String METRIC_PREFIX = "analytics.write.behind.";
+
+    private final AnalyticsResultRepository analyticsResultRepository;
+    private final BlockingQueue<AnalyticsResult> queue;
+    private final int batchSize;
+    private final boolean dropOldest;
+
+    private final long flushIntervalMs;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    // Not Boot's scheduler: its single thread also runs the rollup rebuild and the import recovery
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "analytics-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AnalyticsResultWriter(AnalyticsResultRepository analyticsResultRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${analytics.write-behind.capacity:10000}") int capacity,
+                                 @Value("${analytics.write-behind.batch-size:500}") int batchSize,
+                                 @Value("${analytics.write-behind.flush-interval-ms:1000}") long flushIntervalMs,
+                                 @Value("${analytics.write-behind.overflow:drop-oldest}") String overflow) {
+        if (!"drop-oldest".equals(overflow) && !"drop-newest".equals(overflow)) {
+            throw new IllegalArgumentException("analytics.write-behind.overflow must be drop-oldest or drop-newest");
+        }
+        this.analyticsResultRepository = analyticsResultRepository;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.dropOldest = "drop-oldest".equals(overflow);
+
+        Gauge.builder(METRIC_PREFIX + "queued", this, AnalyticsResultWriter::getQueued)
+                .description("Analytics results waiting to be saved")
+                .register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + "dropped", this, AnalyticsResultWriter::getDropped)
+                .description("Analytics results dropped because the queue was full")
+                .register(meterRegistry);
+        FunctionCounter.builder(METRIC_PREFIX + "failed", this, AnalyticsResultWriter::getFailed)
+                .description("Analytics results lost to failed inserts")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue a result for saving. Never blocks.
+     *
+     * @return false if a result had to be dropped because the queue was full
+     */
+    public boolean enqueue(AnalyticsResult result) {
+        if (queue.offer(result)) {
+            return true;
+        }
+
+        if (dropOldest) {
+            // Make room for the newest result; another thread may take the freed slot first
+            while (!queue.offer(result)) {
+                if (queue.poll() != null) {
+                    countDropped();
+                }
+            }
+        } else {
+            countDropped();
+        }
+        return false;
+    }
+
+    /**
+     * Save everything queued so far, one insertMany per batch
+     */
+    public synchronized void flush() {
+        List<AnalyticsResult> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                analyticsResultRepository.insert(batch);
+            } catch (Exception e) {
+                // History is best effort, a failed batch is not retried
+                failed.addAndGet(batch.size());
+                logger.warn("Could not save {} analytics results: {}", batch.size(), e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        flusher.shutdown();
+        logger.info("Flushing {} queued analytics results before shutdown", queue.size());
+        flush();
+    }
+
+    private void countDropped() {
+        long total = dropped.incrementAndGet();
+        // Log the first drop and then every thousandth, the queue may overflow for a while
+        if (total == 1 || total % 1000 == 0) {
+            logger.warn("Analytics result queue is full, {} results dropped so far", total);
+        }
+    }
+
+    /**
+     * @return Number of results waiting to be saved
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * @return Number of results dropped because the queue was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return Number of results lost to failed inserts
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+}
@@ -1,24 +1,37 @@
 package com.datainsights.portal.service.impl;
 
-import com.datainsights.portal.model.FinancialData;
+import com.datainsights.portal.dto.AnalyticsHistoryCursor;
+import com.datainsights.portal.event.TransactionDataChangedEvent;
 import com.datainsights.portal.model.mongo.AnalyticsResult;
-import com.datainsights.portal.repository.FinancialDataRepository;
+import com.datainsights.portal.repository.FinancialAggregateRepository;
+import com.datainsights.portal.repository.UserDataVersionRepository;
 import com.datainsights.portal.repository.mongo.AnalyticsResultRepository;
 import com.datainsights.portal.service.AnalyticsService;
+import com.datainsights.portal.util.MoneyAccumulator;
+import com.datainsights.portal.util.TimeInterval;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
-import java.time.temporal.WeekFields;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 /**
  * Implementation of the Analytics Service
@@ -28,13 +41,49 @@ public class AnalyticsServiceImpl implements AnalyticsService {
 
     private static final Logger logger = LoggerFactory.getLogger(AnalyticsServiceImpl.class);
 
-    private final FinancialDataRepository financialDataRepository;
-    private final AnalyticsResultRepository analyticsResultRepository;
+    private static final String CACHE_NAME = "analyticsSnapshots";
+
+    // Part of the parameters hash; bump it when the shape of results changes so older stored results are not served
+    private static final int RESULT_FORMAT = 2;
+
+    // Result keys whose values are amounts
+    private static final Set<String> AMOUNT_KEYS = Set.of(
+            "totalIncome", "totalExpenses", "balance", "savingsRate", "amount", "percentage", "total",
+            "income", "expenses");
 
-    public AnalyticsServiceImpl(FinancialDataRepository financialDataRepository,
-                                AnalyticsResultRepository analyticsResultRepository) {
-        this.financialDataRepository = financialDataRepository;
+    /**
+     * Interval of the snapshot that summary and category requests share. It
+     * matches the default of the trends endpoint, so a dashboard loading
+     * all three runs a single query.
+     */
+    private static final TimeInterval SHARED_INTERVAL = TimeInterval.MONTHLY;
+
+    private final FinancialAggregateRepository financialAggregateRepository;
+    private final AnalyticsResultRepository analyticsResultRepository;
+    private final AnalyticsResultWriter analyticsResultWriter;
+    private final UserDataVersionRepository userDataVersionRepository;
+    private final Cache<SnapshotKey, AnalyticsSnapshot> snapshots;
+
+    public AnalyticsServiceImpl(FinancialAggregateRepository financialAggregateRepository,
+                                AnalyticsResultRepository analyticsResultRepository,
+                                AnalyticsResultWriter analyticsResultWriter,
+                                UserDataVersionRepository userDataVersionRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${analytics.cache.max-weight:200000}") long maxWeight,
+                                @Value("${analytics.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.financialAggregateRepository = financialAggregateRepository;
         this.analyticsResultRepository = analyticsResultRepository;
+        this.analyticsResultWriter = analyticsResultWriter;
+        this.userDataVersionRepository = userDataVersionRepository;
+
+        // Weighed by the rows a snapshot holds, evicted by Caffeine's W-TinyLFU policy
+        this.snapshots = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((SnapshotKey key, AnalyticsSnapshot snapshot) -> snapshot.weight())
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, snapshots, CACHE_NAME);
     }
 
     @Override
@@ -42,28 +91,164 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         logger.info("Generating financial summary from {} to {}", startDate, endDate);
 
         Long userId = getUserIdFromAuthentication(authentication);
+        return analyze("SUMMARY", userId, startDate, endDate, SHARED_INTERVAL, false, this::summaryOf);
+    }
+
+    @Override
+    public Map<String, Object> getCategoryBreakdown(LocalDate startDate, LocalDate endDate, Authentication authentication) {
+        logger.info("Generating category breakdown from {} to {}", startDate, endDate);
+
+        Long userId = getUserIdFromAuthentication(authentication);
+        return analyze("CATEGORY", userId, startDate, endDate, SHARED_INTERVAL, false, this::categoryBreakdownOf);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> getFinancialTrends(LocalDate startDate, LocalDate endDate,
+                                                        String interval, Authentication authentication) {
+        logger.info("Generating financial trends from {} to {} with interval {}", startDate, endDate, interval);
+
+        Long userId = getUserIdFromAuthentication(authentication);
+        Map<String, Object> results = analyze("TREND", userId, startDate, endDate, TimeInterval.parse(interval), true, snapshot -> {
+            Map<String, Object> trends = new HashMap<>();
+            trends.put("trends", trendsOf(snapshot));
+            return trends;
+        });
+
+        return (List<Map<String, Object>>) results.get("trends");
+    }
+
+    @Override
+    public Map<String, Object> getAnalyticsOverview(LocalDate startDate, LocalDate endDate,
+                                                    String interval, Authentication authentication) {
+        logger.info("Generating analytics overview from {} to {} with interval {}", startDate, endDate, interval);
+
+        Long userId = getUserIdFromAuthentication(authentication);
+        return analyze("OVERVIEW", userId, startDate, endDate, TimeInterval.parse(interval), true, snapshot -> {
+            Map<String, Object> overview = new HashMap<>();
+            overview.put("summary", summaryOf(snapshot));
+            overview.put("categories", categoryBreakdownOf(snapshot));
+            overview.put("trends", trendsOf(snapshot));
+            return overview;
+        });
+    }
+
+    /**
+     * Results of one analysis at the user's current data version, from the
+     * cheapest source that has them: a cached snapshot, a result stored in
+     * Mongo at the same version, or a new query. Only results of a new query
+     * are saved, so Mongo holds one result per analysis and data version.
+     */
+    private Map<String, Object> analyze(String type, Long userId, LocalDate startDate, LocalDate endDate,
+                                        TimeInterval interval, boolean withInterval,
+                                        Function<AnalyticsSnapshot, Map<String, Object>> build) {
+        long dataVersion = userDataVersionRepository.current(userId);
+        SnapshotKey key = new SnapshotKey(userId, dataVersion, startDate, endDate, interval);
+
+        AnalyticsSnapshot cached = snapshots.getIfPresent(key);
+        if (cached != null) {
+            return build.apply(cached);
+        }
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("startDate", startDate.toString());
+        parameters.put("endDate", endDate.toString());
+        if (withInterval) {
+            parameters.put("interval", interval.value());
+        }
+        String parametersHash = parametersHash(type, parameters);
 
-        // Fetch financial data for the specified date range
-        List<FinancialData> financialData = financialDataRepository.findByTransactionDateBetweenAndCreatedBy(
-                startDate, endDate, userId);
+        Map<String, Object> stored = findStoredResults(userId, type, parametersHash, dataVersion);
+        if (stored != null) {
+            logger.debug("Serving stored {} result of user {} at data version {}", type, userId, dataVersion);
+            return stored;
+        }
 
-        logger.info("Found {} transactions for summary analysis", financialData.size());
+        Map<String, Object> results = build.apply(snapshots.get(key, this::loadSnapshot));
 
-        // Calculate totals
-        BigDecimal totalIncome = BigDecimal.ZERO;
-        BigDecimal totalExpenses = BigDecimal.ZERO;
+        // Save the analysis result
+        analyticsResultWriter.enqueue(newAnalyticsResult(type, userId, parameters, results, parametersHash, dataVersion));
+        return results;
+    }
 
-        for (FinancialData data : financialData) {
-            BigDecimal amount = data.getAmount();
+    private AnalyticsSnapshot loadSnapshot(SnapshotKey key) {
+        AnalyticsSnapshot snapshot = new AnalyticsSnapshot(key.startDate(), key.endDate(), key.interval());
+        financialAggregateRepository.scanByBucketAndCategory(
+                key.userId(), key.startDate(), key.endDate(), key.interval(), snapshot::add);
+        logger.info("Found {} transactions in {} intervals for analysis", snapshot.getCount(), snapshot.getBucketCount());
+        return snapshot;
+    }
 
-            if (amount.compareTo(BigDecimal.ZERO) > 0) {
-                // Positive amount = income
-                totalIncome = totalIncome.add(amount);
-            } else {
-                // Negative amount = expense
-                totalExpenses = totalExpenses.add(amount.abs());
+    /**
+     * Stored results are best effort: when Mongo is unavailable the
+     * analysis is simply computed again
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> findStoredResults(Long userId, String type, String parametersHash, long dataVersion) {
+        try {
+            return analyticsResultRepository
+                    .findFirstByCreatedByAndTypeAndParametersHashAndDataVersionOrderByCreatedAtDesc(
+                            userId, type, parametersHash, dataVersion)
+                    .map(result -> (Map<String, Object>) restoreNumbers(result.getResults()))
+                    .orElse(null);
+        } catch (Exception e) {
+            logger.warn("Could not look up stored {} results: {}", type, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Mongo stores BigDecimal values as strings; turn the amounts of a stored
+     * result back into numbers so it serializes like a computed one
+     */
+    @SuppressWarnings("unchecked")
+    private static Object restoreNumbers(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> restored = new HashMap<>();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                Object item = entry.getValue();
+                restored.put(entry.getKey(), item instanceof String && AMOUNT_KEYS.contains(entry.getKey())
+                        ? new BigDecimal((String) item)
+                        : restoreNumbers(item));
+            }
+            return restored;
+        }
+        if (value instanceof List) {
+            List<Object> restored = new ArrayList<>();
+            for (Object item : (List<Object>) value) {
+                restored.add(restoreNumbers(item));
             }
+            return restored;
         }
+        return value;
+    }
+
+    /**
+     * SHA-256 over the analysis type and its parameters in key order
+     */
+    private static String parametersHash(String type, Map<String, Object> parameters) {
+        try {
+            String canonical = type + "|" + RESULT_FORMAT + "|" + new TreeMap<>(parameters);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Drop the cached snapshots of a user once a change to their data is
+     * committed. Lookups already miss them because the data version moved,
+     * this only frees the memory early.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionDataChanged(TransactionDataChangedEvent event) {
+        snapshots.asMap().keySet().removeIf(key -> key.userId().equals(event.userId()));
+    }
+
+    private Map<String, Object> summaryOf(AnalyticsSnapshot snapshot) {
+        BigDecimal totalIncome = snapshot.getIncome();
+        BigDecimal totalExpenses = snapshot.getExpenses();
 
         // Calculate balance and savings rate
         BigDecimal balance = totalIncome.subtract(totalExpenses);
@@ -76,65 +261,26 @@ public class AnalyticsServiceImpl implements AnalyticsService {
 
         // Create result map
         Map<String, Object> summary = new HashMap<>();
-        summary.put("startDate", startDate.toString());
-        summary.put("endDate", endDate.toString());
+        summary.put("startDate", snapshot.getStartDate().toString());
+        summary.put("endDate", snapshot.getEndDate().toString());
         summary.put("totalIncome", totalIncome);
         summary.put("totalExpenses", totalExpenses);
         summary.put("balance", balance);
         summary.put("savingsRate", savingsRate);
-        summary.put("transactionCount", financialData.size());
-
-        // Save the analysis result
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("startDate", startDate.toString());
-        parameters.put("endDate", endDate.toString());
-
-        saveAnalyticsResult("SUMMARY", parameters, summary, authentication);
-
+        summary.put("transactionCount", snapshot.getCount());
         return summary;
     }
 
-    @Override
-    public Map<String, Object> getCategoryBreakdown(LocalDate startDate, LocalDate endDate, Authentication authentication) {
-        logger.info("Generating category breakdown from {} to {}", startDate, endDate);
-
-        Long userId = getUserIdFromAuthentication(authentication);
-
-        // Fetch financial data for the specified date range
-        List<FinancialData> financialData = financialDataRepository.findByTransactionDateBetweenAndCreatedBy(
-                startDate, endDate, userId);
-
-        logger.info("Found {} transactions for category analysis", financialData.size());
-
-        // Group by category and calculate totals
-        Map<String, BigDecimal> categoryTotals = new HashMap<>();
-
-        for (FinancialData data : financialData) {
-            // Skip income entries (positive amounts)
-            if (data.getAmount().compareTo(BigDecimal.ZERO) >= 0) {
-                continue;
-            }
-
-            String category = data.getCategory();
-            if (category == null || category.isEmpty()) {
-                category = "Uncategorized";
-            }
-
-            BigDecimal amount = data.getAmount().abs();
-
-            // Update category total
-            categoryTotals.put(category,
-                    categoryTotals.getOrDefault(category, BigDecimal.ZERO).add(amount));
-        }
+    private Map<String, Object> categoryBreakdownOf(AnalyticsSnapshot snapshot) {
+        Map<String, BigDecimal> categoryTotals = snapshot.getCategoryExpenses();
 
         // Calculate the total amount for percentages
-        BigDecimal totalAmount = categoryTotals.values().stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalAmount = snapshot.getCategoryExpensesTotal();
 
         // Create result with percentage for each category
         Map<String, Object> result = new HashMap<>();
-        result.put("startDate", startDate.toString());
-        result.put("endDate", endDate.toString());
+        result.put("startDate", snapshot.getStartDate().toString());
+        result.put("endDate", snapshot.getEndDate().toString());
 
         Map<String, Object> categories = new HashMap<>();
         for (Map.Entry<String, BigDecimal> entry : categoryTotals.entrySet()) {
@@ -154,138 +300,91 @@ public class AnalyticsServiceImpl implements AnalyticsService {
 
         result.put("categories", categories);
         result.put("total", totalAmount);
-
-        // Save the analysis result
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("startDate", startDate.toString());
-        parameters.put("endDate", endDate.toString());
-
-        saveAnalyticsResult("CATEGORY", parameters, result, authentication);
-
         return result;
     }
 
-    @Override
-    public List<Map<String, Object>> getFinancialTrends(LocalDate startDate, LocalDate endDate,
-                                                        String interval, Authentication authentication) {
-        logger.info("Generating financial trends from {} to {} with interval {}", startDate, endDate, interval);
-
-        Long userId = getUserIdFromAuthentication(authentication);
-
-        // Fetch financial data for the specified date range
-        List<FinancialData> financialData = financialDataRepository.findByTransactionDateBetweenAndCreatedBy(
-                startDate, endDate, userId);
-
-        logger.info("Found {} transactions for trend analysis", financialData.size());
-
-        // Group data by interval
-        Map<String, List<FinancialData>> groupedData = groupByInterval(financialData, interval);
-
-        // Calculate totals for each interval
-        List<Map<String, Object>> trends = new ArrayList<>();
-
-        for (Map.Entry<String, List<FinancialData>> entry : groupedData.entrySet()) {
-            String intervalKey = entry.getKey();
-            List<FinancialData> intervalData = entry.getValue();
-
-            BigDecimal income = BigDecimal.ZERO;
-            BigDecimal expenses = BigDecimal.ZERO;
-
-            for (FinancialData data : intervalData) {
-                BigDecimal amount = data.getAmount();
-
-                if (amount.compareTo(BigDecimal.ZERO) > 0) {
-                    income = income.add(amount);
-                } else {
-                    expenses = expenses.add(amount.abs());
-                }
-            }
-
-            BigDecimal balance = income.subtract(expenses);
+    private List<Map<String, Object>> trendsOf(AnalyticsSnapshot snapshot) {
+        List<FinancialAggregateRepository.BucketTotals> buckets = snapshot.getBuckets();
+        List<Map<String, Object>> trends = new ArrayList<>(buckets.size());
 
+        // Buckets are already in date order and include the intervals without data
+        for (int i = 0; i < buckets.size(); i++) {
+            FinancialAggregateRepository.BucketTotals bucket = buckets.get(i);
             Map<String, Object> intervalResult = new HashMap<>();
-            intervalResult.put("interval", intervalKey);
-            intervalResult.put("income", income);
-            intervalResult.put("expenses", expenses);
-            intervalResult.put("balance", balance);
+            intervalResult.put("interval", snapshot.getBucketLabel(i));
+            intervalResult.put("income", MoneyAccumulator.toBigDecimal(bucket.income()));
+            intervalResult.put("expenses", MoneyAccumulator.toBigDecimal(bucket.expenses()));
+            intervalResult.put("balance", MoneyAccumulator.toBigDecimal(bucket.income() - bucket.expenses()));
 
             trends.add(intervalResult);
         }
-
-        // Sort by interval
-        trends.sort(Comparator.comparing(m -> (String) m.get("interval")));
-
-        // Save the analysis result
-        Map<String, Object> parameters = new HashMap<>();
-        parameters.put("startDate", startDate.toString());
-        parameters.put("endDate", endDate.toString());
-        parameters.put("interval", interval);
-
-        Map<String, Object> results = new HashMap<>();
-        results.put("trends", trends);
-
-        saveAnalyticsResult("TREND", parameters, results, authentication);
-
         return trends;
     }
 
     @Override
     public AnalyticsResult saveAnalyticsResult(String type, Map<String, Object> parameters,
                                                Map<String, Object> results, Authentication authentication) {
-        // Create a new analytics result
+        Long userId = getUserIdFromAuthentication(authentication);
+        AnalyticsResult analyticsResult = newAnalyticsResult(type, userId, parameters, results,
+                parametersHash(type, parameters), userDataVersionRepository.current(userId));
+
+        // Saved to MongoDB in the background, the request does not wait for it
+        analyticsResultWriter.enqueue(analyticsResult);
+        return analyticsResult;
+    }
+
+    private static AnalyticsResult newAnalyticsResult(String type, Long userId, Map<String, Object> parameters,
+                                                      Map<String, Object> results, String parametersHash,
+                                                      long dataVersion) {
         AnalyticsResult analyticsResult = new AnalyticsResult();
         analyticsResult.setType(type);
         analyticsResult.setCreatedAt(LocalDateTime.now());
-        analyticsResult.setCreatedBy(getUserIdFromAuthentication(authentication));
+        analyticsResult.setCreatedBy(userId);
         analyticsResult.setParameters(parameters);
+        analyticsResult.setParametersHash(parametersHash);
+        analyticsResult.setDataVersion(dataVersion);
         analyticsResult.setResults(results);
-
-        // Save to MongoDB
-        return analyticsResultRepository.save(analyticsResult);
+        return analyticsResult;
     }
 
     @Override
-    public List<AnalyticsResult> getAnalyticsHistory(Authentication authentication) {
+    public Map<String, Object> getAnalyticsHistory(AnalyticsHistoryCursor cursor, int limit,
+                                                   Authentication authentication) {
         Long userId = getUserIdFromAuthentication(authentication);
-        return analyticsResultRepository.findByCreatedByOrderByCreatedAtDesc(userId);
-    }
-
-    /**
-     * Group financial data by time interval (daily, weekly, monthly)
-     */
-    private Map<String, List<FinancialData>> groupByInterval(List<FinancialData> data, String interval) {
-        Map<String, List<FinancialData>> groupedData = new HashMap<>();
-
-        DateTimeFormatter dailyFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        DateTimeFormatter weeklyFormatter = DateTimeFormatter.ofPattern("yyyy-'W'ww");
-        DateTimeFormatter monthlyFormatter = DateTimeFormatter.ofPattern("yyyy-MM");
-
-        for (FinancialData item : data) {
-            LocalDate date = item.getTransactionDate();
-            String key;
-
-            switch (interval.toLowerCase()) {
-                case "weekly":
-                    key = date.format(weeklyFormatter);
-                    break;
-                case "monthly":
-                    key = date.format(monthlyFormatter);
-                    break;
-                case "daily":
-                default:
-                    key = date.format(dailyFormatter);
-                    break;
-            }
 
-            // Add to the appropriate group
-            if (!groupedData.containsKey(key)) {
-                groupedData.put(key, new ArrayList<>());
-            }
+        // One extra entry tells whether there is a next page
+        Limit pageLimit = Limit.of(limit + 1);
+        List<AnalyticsResult> page = cursor == null
+                ? analyticsResultRepository.findHistory(userId, pageLimit)
+                : analyticsResultRepository.findHistoryAfter(userId, cursor.createdAt(), new ObjectId(cursor.id()), pageLimit);
 
-            groupedData.get(key).add(item);
+        boolean hasMore = page.size() > limit;
+        List<Map<String, Object>> items = new ArrayList<>(Math.min(page.size(), limit));
+        for (AnalyticsResult result : hasMore ? page.subList(0, limit) : page) {
+            items.add(historyEntry(result));
         }
 
-        return groupedData;
+        Map<String, Object> history = new LinkedHashMap<>();
+        history.put("items", items);
+        AnalyticsResult last = hasMore ? page.get(limit - 1) : null;
+        history.put("nextCursor", last != null ? new AnalyticsHistoryCursor(last.getCreatedAt(), last.getId()).encode() : null);
+        return history;
+    }
+
+    @Override
+    public AnalyticsResult getAnalyticsResult(String id, Authentication authentication) {
+        Long userId = getUserIdFromAuthentication(authentication);
+        return analyticsResultRepository.findByIdAndCreatedBy(id, userId).orElse(null);
+    }
+
+    private static Map<String, Object> historyEntry(AnalyticsResult result) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("id", result.getId());
+        entry.put("type", result.getType());
+        entry.put("createdAt", result.getCreatedAt());
+        entry.put("parameters", result.getParameters());
+        entry.put("dataVersion", result.getDataVersion());
+        return entry;
     }
 
     /**
@@ -297,4 +396,8 @@ public class AnalyticsServiceImpl implements AnalyticsService {
         // For testing purposes, using a fixed user ID
         return 1L;
     }
+
+    private record SnapshotKey(Long userId, long dataVersion, LocalDate startDate, LocalDate endDate,
+                               TimeInterval interval) {
+    }
 }
@@ -0,0 +1,152 @@
+package com.datainsights.portal.service.impl;
+
+import com.datainsights.portal.repository.FinancialAggregateRepository.BucketTotals;
+import com.datainsights.portal.repository.FinancialAggregateRepository.GroupTotals;
+import com.datainsights.portal.util.CategoryDictionary;
+import com.datainsights.portal.util.LongSumMap;
+import com.datainsights.portal.util.MoneyAccumulator;
+import com.datainsights.portal.util.TimeInterval;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary totals, expenses per category and totals per interval of one
+ * user and date range, filled in a single pass over the grouped rows of
+ * {@link com.datainsights.portal.repository.FinancialAggregateRepository#scanByBucketAndCategory}.
+ * Amounts are summed as long cents and only turned into BigDecimal by the
+ * getters. Interval totals are kept in arrays with one slot per interval
+ * of the date range, indexed by {@link TimeInterval#bucketId}.
+ */
+final class AnalyticsSnapshot {
+
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final TimeInterval interval;
+
+    private final MoneyAccumulator income = new MoneyAccumulator();
+    private final MoneyAccumulator expenses = new MoneyAccumulator();
+    private long count;
+    private final CategoryDictionary categories = new CategoryDictionary();
+    private final LongSumMap categoryExpenses = new LongSumMap();
+    private final long firstBucket;
+    private final long[] bucketIncome;
+    private final long[] bucketExpenses;
+    private final long[] bucketCount;
+
+    AnalyticsSnapshot(LocalDate startDate, LocalDate endDate, TimeInterval interval) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.interval = interval;
+
+        int buckets = interval.bucketCount(startDate, endDate);
+        this.firstBucket = interval.bucketId(startDate);
+        this.bucketIncome = new long[buckets];
+        this.bucketExpenses = new long[buckets];
+        this.bucketCount = new long[buckets];
+    }
+
+    /**
+     * Add one bucket and category row to every metric
+     */
+    void add(GroupTotals row) {
+        long rowIncome = row.income();
+        long rowExpenses = row.expenses();
+        income.addCents(rowIncome);
+        expenses.addCents(rowExpenses);
+        count += row.count();
+
+        if (rowExpenses > 0) {
+            String category = row.category() == null || row.category().isEmpty() ? "Uncategorized" : row.category();
+            categoryExpenses.add(categories.idOf(category), rowExpenses);
+        }
+
+        // Rows may come per day when the database cannot truncate dates, so map them here
+        int bucket = (int) (interval.bucketId(row.bucket()) - firstBucket);
+        if (bucket >= 0 && bucket < bucketCount.length) {
+            bucketIncome[bucket] += rowIncome;
+            bucketExpenses[bucket] += rowExpenses;
+            bucketCount[bucket] += row.count();
+        }
+    }
+
+    LocalDate getStartDate() {
+        return startDate;
+    }
+
+    LocalDate getEndDate() {
+        return endDate;
+    }
+
+    TimeInterval getInterval() {
+        return interval;
+    }
+
+    BigDecimal getIncome() {
+        return income.toBigDecimal();
+    }
+
+    BigDecimal getExpenses() {
+        return expenses.toBigDecimal();
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Category name to total expenses, as positive amounts
+     */
+    Map<String, BigDecimal> getCategoryExpenses() {
+        Map<String, BigDecimal> totals = new LinkedHashMap<>();
+        categoryExpenses.forEach((id, cents) ->
+                totals.put(categories.nameOf(id), MoneyAccumulator.toBigDecimal(cents)));
+        return Collections.unmodifiableMap(totals);
+    }
+
+    /**
+     * @return Sum of {@link #getCategoryExpenses()}
+     */
+    BigDecimal getCategoryExpensesTotal() {
+        return MoneyAccumulator.toBigDecimal(categoryExpenses.total());
+    }
+
+    /**
+     * @return Number of intervals in the date range
+     */
+    int getBucketCount() {
+        return bucketCount.length;
+    }
+
+    /**
+     * @return Label of the index-th interval, see {@link TimeInterval#label}
+     */
+    String getBucketLabel(int index) {
+        return interval.label(firstBucket + index);
+    }
+
+    /**
+     * @return One entry per interval of the date range in cents, ordered by
+     * interval start; intervals without data have zero totals
+     */
+    List<BucketTotals> getBuckets() {
+        List<BucketTotals> totals = new ArrayList<>(bucketCount.length);
+        for (int i = 0; i < bucketCount.length; i++) {
+            totals.add(new BucketTotals(interval.startOf(firstBucket + i),
+                    bucketIncome[i], bucketExpenses[i], bucketCount[i]));
+        }
+        return totals;
+    }
+
+    /**
+     * @return Cache weight, roughly the number of rows the snapshot holds
+     */
+    int weight() {
+        return 1 + categoryExpenses.size() + bucketCount.length;
+    }
+}
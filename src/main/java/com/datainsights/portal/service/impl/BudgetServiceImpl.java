@@ -2,10 +2,9 @@ package com.datainsights.portal.service.impl;
 
 import com.datainsights.portal.model.Budget;
 import com.datainsights.portal.model.User;
-import com.datainsights.portal.model.Transaction;
 import com.datainsights.portal.repository.BudgetRepository;
+import com.datainsights.portal.repository.DailyRollupRepository;
 import com.datainsights.portal.repository.UserRepository;
-import com.datainsights.portal.repository.TransactionRepository;
 import com.datainsights.portal.service.BudgetService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -31,7 +30,7 @@ public class BudgetServiceImpl implements BudgetService {
     private UserRepository userRepository;
 
     @Autowired
-    private TransactionRepository transactionRepository;
+    private DailyRollupRepository dailyRollupRepository;
 
     @Override
     public List<Budget> getAllBudgets() {
@@ -117,8 +116,9 @@ public class BudgetServiceImpl implements BudgetService {
         LocalDate startOfMonth = yearMonth.atDay(1);
         LocalDate endOfMonth = yearMonth.atEndOfMonth();
 
-        // Get all transactions for the specified date range
-        List<Transaction> monthlyTransactions = transactionRepository.findByDateBetween(startOfMonth, endOfMonth);
+        // Get the user's expenses per category for the month from the daily rollup
+        Map<String, BigDecimal> spentByCategory = dailyRollupRepository.sumExpensesByCategory(
+                user.getId(), startOfMonth, endOfMonth);
 
         // Calculate spending by category
         Map<String, Double> progress = new HashMap<>();
@@ -127,13 +127,8 @@ public class BudgetServiceImpl implements BudgetService {
             if (!budget.getStartDate().isAfter(endOfMonth) &&
                     (budget.getEndDate() == null || !budget.getEndDate().isBefore(startOfMonth))) {
 
-                // Calculate spending for this category (only expense transactions)
-                double spent = monthlyTransactions.stream()
-                        .filter(t -> t.getCreatedBy() != null && t.getCreatedBy().equals(user.getId())) // Filter by user
-                        .filter(t -> t.getCategory() != null && t.getCategory().equals(budget.getCategory()))
-                        .filter(t -> "expense".equals(t.getType()) || t.getAmount().compareTo(BigDecimal.ZERO) < 0)
-                        .mapToDouble(t -> t.getAmount().abs().doubleValue())
-                        .sum();
+                // Spending for this category (only expense transactions)
+                double spent = spentByCategory.getOrDefault(budget.getCategory(), BigDecimal.ZERO).doubleValue();
 
                 progress.put(budget.getCategory(), spent);
             }
@@ -0,0 +1,57 @@
+package com.datainsights.portal.service.impl;
+
+import com.datainsights.portal.repository.DailyRollupRepository;
+import com.datainsights.portal.repository.MonthlyRollupRepository;
+import com.datainsights.portal.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfills the daily and monthly rollups from financial_transactions. The
+ * rollups are built once at startup when one of them is still empty, for
+ * transactions written before it existed, and rebuilt on a schedule to heal
+ * any drift from rows changed outside the application.
+ */
+@Component
+public class DailyRollupRebuildJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyRollupRebuildJob.class);
+
+    private final DailyRollupRepository dailyRollupRepository;
+    private final MonthlyRollupRepository monthlyRollupRepository;
+    private final TransactionRepository transactionRepository;
+
+    public DailyRollupRebuildJob(DailyRollupRepository dailyRollupRepository,
+                                 MonthlyRollupRepository monthlyRollupRepository,
+                                 TransactionRepository transactionRepository) {
+        this.dailyRollupRepository = dailyRollupRepository;
+        this.monthlyRollupRepository = monthlyRollupRepository;
+        this.transactionRepository = transactionRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if ((dailyRollupRepository.isEmpty() || monthlyRollupRepository.isEmpty())
+                    && transactionRepository.count() > 0) {
+                rebuildAll();
+            }
+        } catch (Exception e) {
+            logger.error("Could not backfill the rollups: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recompute the rollups of all users, by default every night
+     */
+    @Scheduled(cron = "${rollup.rebuild-cron:0 30 3 * * *}")
+    public void rebuildAll() {
+        long start = System.currentTimeMillis();
+        int rows = dailyRollupRepository.rebuildAll();
+        logger.info("Rebuilt the daily rollup with {} rows in {} ms", rows, System.currentTimeMillis() - start);
+    }
+}
@@ -9,16 +9,25 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.UUID;
 
 @Service
 public class FileStorageServiceImpl implements FileStorageService {
 
+    private static final int CHUNK_COPY_BUFFER_SIZE = 64 * 1024;
+
     private final Path fileStorageLocation;
 
     public FileStorageServiceImpl(@Value("${file.upload-dir:./uploads}") String uploadDir) {
@@ -71,4 +80,94 @@ public class FileStorageServiceImpl implements FileStorageService {
             throw new RuntimeException("File not found: " + fileName, ex);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public Path getFilePath(String fileName) {
+        Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
+
+        // Never resolve outside of the upload directory
+        if (!filePath.startsWith(this.fileStorageLocation)) {
+            throw new RuntimeException("Filename contains invalid path sequence: " + fileName);
+        }
+        return filePath;
+    }
+
+    @Override
+    public boolean deleteFile(String fileName) {
+        try {
+            return Files.deleteIfExists(getFilePath(fileName));
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not delete file " + fileName, ex);
+        }
+    }
+
+    @Override
+    public String createEmptyFile(String originalFileName) {
+        String fileName = UUID.randomUUID().toString() + "_" + StringUtils.cleanPath(originalFileName);
+        if (fileName.contains("..") || fileName.contains("/")) {
+            throw new RuntimeException("Filename contains invalid path sequence: " + fileName);
+        }
+
+        try {
+            Files.createFile(getFilePath(fileName));
+            return fileName;
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not create file " + fileName, ex);
+        }
+    }
+
+    @Override
+    public long appendChunk(String fileName, long offset, InputStream data, long maxChunkBytes) {
+        Path filePath = getFilePath(fileName);
+
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                throw new IllegalStateException("Another chunk is being written to this upload");
+            }
+
+            try {
+                long size = channel.size();
+                if (offset != size) {
+                    throw new IllegalStateException("Chunk offset " + offset + " does not match the uploaded size " + size);
+                }
+
+                try {
+                    // Copy through a small buffer, the chunk is never held in memory
+                    ReadableByteChannel source = Channels.newChannel(data);
+                    ByteBuffer buffer = ByteBuffer.allocate(CHUNK_COPY_BUFFER_SIZE);
+                    long position = offset;
+                    while (source.read(buffer) >= 0) {
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            position += channel.write(buffer, position);
+                        }
+                        buffer.clear();
+                        if (position - offset > maxChunkBytes) {
+                            throw new IllegalArgumentException("Chunk is larger than " + maxChunkBytes + " bytes");
+                        }
+                    }
+                    channel.force(false);
+                    return position;
+                } catch (IOException | RuntimeException ex) {
+                    // Drop the partial chunk so the client can resend it from the same offset
+                    channel.truncate(offset);
+                    throw ex;
+                }
+            } finally {
+                lock.release();
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not write chunk to " + fileName, ex);
+        }
+    }
+
+    @Override
+    public long getFileSize(String fileName) {
+        try {
+            return Files.size(getFilePath(fileName));
+        } catch (IOException ex) {
+            throw new RuntimeException("File not found: " + fileName, ex);
+        }
+    }
+}
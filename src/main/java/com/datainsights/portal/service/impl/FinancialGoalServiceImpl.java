@@ -3,7 +3,9 @@ package com.datainsights.portal.service.impl;
 import com.datainsights.portal.model.FinancialGoal;
 import com.datainsights.portal.model.User;
 import com.datainsights.portal.repository.FinancialGoalRepository;
+import com.datainsights.portal.repository.MonthlyRollupRepository;
 import com.datainsights.portal.service.FinancialGoalService;
+import com.datainsights.portal.service.impl.ForecastEngine.UserForecasts;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,6 +22,7 @@ import java.util.Map;
 public class FinancialGoalServiceImpl implements FinancialGoalService {
 
     private final FinancialGoalRepository goalRepository;
+    private final ForecastEngine forecastEngine;
 
     @Override
     public List<FinancialGoal> getAllGoalsByUser(User user) {
@@ -90,4 +93,51 @@ public class FinancialGoalServiceImpl implements FinancialGoalService {
 
         return progressInfo;
     }
+
+    @Override
+    public Map<String, Object> getGoalForecast(Long id, User user, int paths) {
+        FinancialGoal goal = getGoalById(id, user);
+
+        double targetAmount = goal.getTargetAmount();
+        double currentAmount = goal.getCurrentAmount();
+
+        // Whole months from next month up to and including the month of the target date
+        LocalDate today = LocalDate.now();
+        int currentMonthId = MonthlyRollupRepository.monthId(today.getYear(), today.getMonthValue());
+        LocalDate targetDate = goal.getTargetDate();
+        long monthsRemaining = targetDate != null
+                ? Math.max(0, MonthlyRollupRepository.monthId(targetDate.getYear(), targetDate.getMonthValue())
+                        - currentMonthId)
+                : 0;
+
+        Map<String, Object> forecastInfo = new HashMap<>();
+        forecastInfo.put("goalId", goal.getId());
+        forecastInfo.put("targetAmount", targetAmount);
+        forecastInfo.put("monthsRemaining", monthsRemaining);
+
+        if (monthsRemaining == 0) {
+            // Nothing left to simulate, the goal stands where it is
+            forecastInfo.put("paths", 0);
+            forecastInfo.put("p10", currentAmount);
+            forecastInfo.put("p50", currentAmount);
+            forecastInfo.put("p90", currentAmount);
+            forecastInfo.put("probability", currentAmount >= targetAmount ? 100.0 : 0.0);
+            return forecastInfo;
+        }
+
+        // Simulate the user's monthly net savings going into the goal until its target date
+        UserForecasts forecasts = forecastEngine.forecastsOf(user.getId());
+        SavingsSimulation simulation = forecastEngine.simulateSavings(forecasts, currentMonthId + 1,
+                (int) monthsRemaining, currentAmount * 100, 0, paths);
+
+        int lastMonth = (int) monthsRemaining - 1;
+        forecastInfo.put("paths", simulation.getPaths());
+        forecastInfo.put("p10", Math.round(simulation.percentile(lastMonth, 0.1)) / 100.0);
+        forecastInfo.put("p50", Math.round(simulation.percentile(lastMonth, 0.5)) / 100.0);
+        forecastInfo.put("p90", Math.round(simulation.percentile(lastMonth, 0.9)) / 100.0);
+        forecastInfo.put("probability",
+                Math.round(simulation.shareAtLeast(lastMonth, targetAmount * 100) * 1000.0) / 10.0);
+
+        return forecastInfo;
+    }
 }
\ No newline at end of file
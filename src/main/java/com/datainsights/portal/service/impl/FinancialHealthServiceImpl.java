@@ -9,6 +9,9 @@ import com.datainsights.portal.repository.FinancialGoalRepository;
 import com.datainsights.portal.repository.TransactionRepository;
 import com.datainsights.portal.repository.UserRepository;
 import com.datainsights.portal.service.FinancialHealthService;
+import com.datainsights.portal.service.TransactionColumnStore;
+import com.datainsights.portal.util.MoneyAccumulator;
+import com.datainsights.portal.util.UserTransactionColumns;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -27,6 +30,9 @@ public class FinancialHealthServiceImpl implements FinancialHealthService {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private TransactionColumnStore transactionColumnStore;
+
     @Autowired
     private BudgetRepository budgetRepository;
 
@@ -40,10 +46,13 @@ public class FinancialHealthServiceImpl implements FinancialHealthService {
 
         Map<String, Object> healthData = new HashMap<>();
 
-        // Calculate scores based on real data
-        double savingsScore = calculateSavingsScore(user);
-        double debtScore = calculateDebtScore(user);
-        double budgetScore = calculateBudgetScore(user);
+        // Calculate scores based on real data, from the cached columns when the store is enabled
+        TransactionSums sums = transactionColumnStore.isEnabled()
+                ? new ColumnSums(transactionColumnStore.get(user.getId()))
+                : new DatabaseSums(user.getId());
+        double savingsScore = calculateSavingsScore(sums);
+        double debtScore = calculateDebtScore(sums);
+        double budgetScore = calculateBudgetScore(user, sums);
         double investmentScore = calculateInvestmentScore(user);
 
         // Calculate overall health score (weighted average)
@@ -78,14 +87,12 @@ public class FinancialHealthServiceImpl implements FinancialHealthService {
         return healthData;
     }
 
-    private double calculateSavingsScore(User user) {
+    private double calculateSavingsScore(TransactionSums sums) {
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusMonths(3);
 
-        BigDecimal totalIncome = transactionRepository.sumIncomeByUserAndDateRange(
-                user.getId(), startDate, endDate);
-        BigDecimal totalExpenses = transactionRepository.sumExpensesByUserAndDateRange(
-                user.getId(), startDate, endDate);
+        BigDecimal totalIncome = sums.income(startDate, endDate);
+        BigDecimal totalExpenses = sums.expenses(startDate, endDate);
 
         if (totalIncome.compareTo(BigDecimal.ZERO) == 0) {
             return 50.0; // Default score if no income
@@ -100,21 +107,14 @@ public class FinancialHealthServiceImpl implements FinancialHealthService {
         return Math.min(100, Math.max(0, score));
     }
 
-    private double calculateDebtScore(User user) {
+    private double calculateDebtScore(TransactionSums sums) {
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusMonths(1);
 
-        BigDecimal monthlyIncome = transactionRepository.sumIncomeByUserAndDateRange(
-                user.getId(), startDate, endDate);
+        BigDecimal monthlyIncome = sums.income(startDate, endDate);
 
-        // Find debt-related transactions (loans, credit cards, etc.)
-        List<Transaction> debtTransactions = transactionRepository.findByCreatedByAndCategory(
-                user.getId(), "Debt Payment");
-
-        BigDecimal totalDebtPayments = debtTransactions.stream()
-                .map(Transaction::getAmount)
-                .map(BigDecimal::abs)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Sum debt-related transactions (loans, credit cards, etc.)
+        BigDecimal totalDebtPayments = sums.absoluteByCategory("Debt Payment", null, null);
 
         if (monthlyIncome.compareTo(BigDecimal.ZERO) == 0) {
             return 50.0; // Default score if no income
@@ -128,7 +128,7 @@ public class FinancialHealthServiceImpl implements FinancialHealthService {
         return Math.min(100, Math.max(0, score));
     }
 
-    private double calculateBudgetScore(User user) {
+    private double calculateBudgetScore(User user, TransactionSums sums) {
         List<Budget> budgets = budgetRepository.findByCreatedBy(user.getId());
         if (budgets.isEmpty()) {
             return 50.0; // Default score if no budgets
@@ -141,14 +141,7 @@ public class FinancialHealthServiceImpl implements FinancialHealthService {
             LocalDate startDate = budget.getStartDate();
             LocalDate endDate = budget.getEndDate() != null ? budget.getEndDate() : LocalDate.now();
 
-            List<Transaction> transactions = transactionRepository.findByCreatedByAndCategory(
-                    user.getId(), budget.getCategory());
-
-            BigDecimal actualSpending = transactions.stream()
-                    .filter(t -> !t.getDate().isBefore(startDate) && !t.getDate().isAfter(endDate))
-                    .map(Transaction::getAmount)
-                    .map(BigDecimal::abs)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal actualSpending = sums.absoluteByCategory(budget.getCategory(), startDate, endDate);
 
             BigDecimal budgetAmount = BigDecimal.valueOf(budget.getAmount());
 
@@ -555,4 +548,73 @@ public class FinancialHealthServiceImpl implements FinancialHealthService {
         // from a historical data table
         return 68.0;
     }
-}
\ No newline at end of file
+
+    /**
+     * The transaction sums the scores need, from either source
+     */
+    private interface TransactionSums {
+
+        BigDecimal income(LocalDate startDate, LocalDate endDate);
+
+        BigDecimal expenses(LocalDate startDate, LocalDate endDate);
+
+        /**
+         * Sum of the absolute amounts of a category; null dates mean all time
+         */
+        BigDecimal absoluteByCategory(String category, LocalDate startDate, LocalDate endDate);
+    }
+
+    private static final class ColumnSums implements TransactionSums {
+
+        private final UserTransactionColumns columns;
+
+        private ColumnSums(UserTransactionColumns columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public BigDecimal income(LocalDate startDate, LocalDate endDate) {
+            return MoneyAccumulator.toBigDecimal(columns.totals(startDate, endDate).income());
+        }
+
+        @Override
+        public BigDecimal expenses(LocalDate startDate, LocalDate endDate) {
+            return MoneyAccumulator.toBigDecimal(columns.totals(startDate, endDate).expenses());
+        }
+
+        @Override
+        public BigDecimal absoluteByCategory(String category, LocalDate startDate, LocalDate endDate) {
+            return MoneyAccumulator.toBigDecimal(columns.sumAbsoluteByCategory(category, startDate, endDate));
+        }
+    }
+
+    /**
+     * Aggregates in the database, used when the column store is disabled
+     */
+    private final class DatabaseSums implements TransactionSums {
+
+        private final Long userId;
+
+        private DatabaseSums(Long userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public BigDecimal income(LocalDate startDate, LocalDate endDate) {
+            return transactionRepository.sumIncomeByUserAndDateRange(userId, startDate, endDate);
+        }
+
+        @Override
+        public BigDecimal expenses(LocalDate startDate, LocalDate endDate) {
+            return transactionRepository.sumExpensesByUserAndDateRange(userId, startDate, endDate);
+        }
+
+        @Override
+        public BigDecimal absoluteByCategory(String category, LocalDate startDate, LocalDate endDate) {
+            if (startDate == null || endDate == null) {
+                return transactionRepository.sumAbsoluteByUserAndCategory(userId, category);
+            }
+            return transactionRepository.sumAbsoluteByUserAndCategoryAndDateRange(userId, category, startDate, endDate);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.datainsights.portal.service.impl;
+
+import com.datainsights.portal.repository.MonthlyRollupRepository;
+import com.datainsights.portal.repository.UserDataVersionRepository;
+import com.datainsights.portal.util.LongSumMap;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiFunction;
+
+/**
+ * Fits forecasting models to the monthly series of a user and keeps them.
+ * <p>
+ * Every series (total income, total expenses and both per category) gets
+ * each model in {@link #MODELS} fitted, and the one with the lowest
+ * one-step-ahead error is used. All candidates are scored on the same
+ * months: those after the initialisation window of the most demanding
+ * model the series is long enough for. Series are fitted up to the last
+ * complete month, so a partial current month is forecast rather than
+ * taken as history. A user's {@link ForecastState} and fitted models are
+ * cached together under their data version and the current month; while
+ * both stay the same a forecast only reads the version, once either moves
+ * the rollup is read again and the models are refitted on first use.
+ * <p>
+ * The categories of a user are projected on the forecast pool once there
+ * are enough of them, each worker taking a contiguous slice. Every
+ * category's result has its own slot and fitting is deterministic, so the
+ * results do not depend on the number of workers.
+ * <p>
+ * Monte Carlo projections simulate {@link SavingsSimulation} paths on the
+ * same pool around the projected income and expenses.
+ */
+@Component
+public class ForecastEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ForecastEngine.class);
+
+    private static final String CACHE_NAME = "forecastModels";
+
+    private static final List<BiFunction<double[], Integer, ForecastModel>> MODELS = List.of(
+            SimpleExponentialSmoothing::fit,
+            HoltLinearTrend::fit,
+            HoltWinters::fit);
+
+    private final MonthlyRollupRepository monthlyRollupRepository;
+    private final UserDataVersionRepository userDataVersionRepository;
+    private final Cache<Long, UserForecasts> forecasts;
+    private final ForkJoinPool forecastPool;
+    private final int parallelThreshold;
+    private final int defaultPaths;
+    private final int maxPaths;
+    private final long maxSimulatedMonths;
+
+    public ForecastEngine(MonthlyRollupRepository monthlyRollupRepository,
+                          UserDataVersionRepository userDataVersionRepository,
+                          MeterRegistry meterRegistry,
+                          @Qualifier("forecastPool") ForkJoinPool forecastPool,
+                          @Value("${forecast.model-cache.max-size:10000}") long maxSize,
+                          @Value("${forecast.model-cache.ttl-seconds:3600}") long ttlSeconds,
+                          @Value("${forecast.pool.parallel-threshold-categories:8}") int parallelThreshold,
+                          @Value("${forecast.monte-carlo.paths:10000}") int defaultPaths,
+                          @Value("${forecast.monte-carlo.max-paths:100000}") int maxPaths,
+                          @Value("${forecast.monte-carlo.max-path-months:6000000}") long maxSimulatedMonths) {
+        this.monthlyRollupRepository = monthlyRollupRepository;
+        this.userDataVersionRepository = userDataVersionRepository;
+        this.forecastPool = forecastPool;
+        this.parallelThreshold = parallelThreshold;
+        this.defaultPaths = defaultPaths;
+        this.maxPaths = maxPaths;
+        this.maxSimulatedMonths = maxSimulatedMonths;
+
+        this.forecasts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, forecasts, CACHE_NAME);
+    }
+
+    /**
+     * @return The history and fitted models of a user at their current data version
+     */
+    UserForecasts forecastsOf(Long userId) {
+        LocalDate today = LocalDate.now();
+        int currentMonthId = MonthlyRollupRepository.monthId(today.getYear(), today.getMonthValue());
+        long dataVersion = userDataVersionRepository.current(userId);
+        UserForecasts cached = forecasts.getIfPresent(userId);
+        if (cached != null && cached.dataVersion == dataVersion && cached.currentMonthId == currentMonthId) {
+            return cached;
+        }
+
+        UserForecasts loaded = new UserForecasts(userId, dataVersion, currentMonthId,
+                new ForecastState(monthlyRollupRepository.findByUser(userId)));
+        forecasts.put(userId, loaded);
+        return loaded;
+    }
+
+    /**
+     * Project the income or expenses of every category in a map
+     *
+     * @param categories Category ids to project, e.g. {@link ForecastState#getExpensesByCategory}
+     * @param expenses true to project expenses, false for income
+     * @param parallelism Most pool threads to use, 0 or less for all of them
+     * @return Cents per month for each category, in the order of the map
+     */
+    double[][] projectCategories(UserForecasts userForecasts, LongSumMap categories, boolean expenses,
+                                 int fromMonthId, int months, int parallelism) {
+        int count = categories.size();
+        double[][] projected = new double[count][];
+
+        int workers = Math.min(count, parallelism > 0
+                ? Math.min(parallelism, forecastPool.getParallelism())
+                : forecastPool.getParallelism());
+        if (workers <= 1 || count < parallelThreshold) {
+            projectSlice(userForecasts, categories, expenses, fromMonthId, months, projected, 0, count);
+            return projected;
+        }
+
+        List<ForkJoinTask<?>> slices = new ArrayList<>(workers);
+        try {
+            for (int w = 0; w < workers; w++) {
+                int from = (int) ((long) count * w / workers);
+                int to = (int) ((long) count * (w + 1) / workers);
+                slices.add(forecastPool.submit(() ->
+                        projectSlice(userForecasts, categories, expenses, fromMonthId, months, projected, from, to)));
+            }
+            for (ForkJoinTask<?> slice : slices) {
+                slice.join();
+            }
+        } finally {
+            // Don't leave work behind if a slice failed
+            slices.forEach(slice -> slice.cancel(true));
+        }
+        return projected;
+    }
+
+    /**
+     * Simulate the balance of a user's savings over the given months. The
+     * seed is derived from the user and data version, so repeating a
+     * request gives the same bands.
+     *
+     * @param startBalance Balance before the first month, in cents
+     * @param monthlyRate Interest added to the balance every month
+     * @param paths Requested number of paths, 0 or less for the default;
+     *              capped by the configured maximum and by the paths times months budget
+     */
+    SavingsSimulation simulateSavings(UserForecasts userForecasts, int fromMonthId, int months,
+                                      double startBalance, double monthlyRate, int paths) {
+        int simulatedPaths = Math.min(paths > 0 ? paths : defaultPaths, maxPaths);
+        if (months > 0) {
+            simulatedPaths = (int) Math.min(simulatedPaths, Math.max(1, maxSimulatedMonths / months));
+        }
+        simulatedPaths = Math.max(1, simulatedPaths);
+
+        ForecastState state = userForecasts.getState();
+        long seed = userForecasts.userId * 31 + userForecasts.dataVersion;
+        return SavingsSimulation.run(forecastPool,
+                userForecasts.income(fromMonthId, months), userForecasts.expenses(fromMonthId, months),
+                state.getMonthlyIncomeStdDev(), state.getMonthlyExpensesStdDev(),
+                startBalance, monthlyRate, simulatedPaths, seed);
+    }
+
+    private static void projectSlice(UserForecasts userForecasts, LongSumMap categories, boolean expenses,
+                                     int fromMonthId, int months, double[][] projected, int from, int to) {
+        for (int c = from; c < to; c++) {
+            int categoryId = categories.keyAt(c);
+            projected[c] = expenses
+                    ? userForecasts.expenses(categoryId, fromMonthId, months)
+                    : userForecasts.income(categoryId, fromMonthId, months);
+        }
+    }
+
+    /**
+     * @return The model with the lowest error on a series, null for an empty one
+     */
+    static ForecastModel fit(double[] series) {
+        int scoreFrom = scoreFrom(series.length);
+        ForecastModel best = null;
+        for (BiFunction<double[], Integer, ForecastModel> model : MODELS) {
+            ForecastModel fitted = model.apply(series, scoreFrom);
+            if (fitted != null && (best == null || fitted.getError() < best.getError())) {
+                best = fitted;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * First month the candidates for a series of this length are scored
+     * from, the end of the longest initialisation window that still leaves
+     * months to score
+     */
+    static int scoreFrom(int length) {
+        if (length >= HoltWinters.MIN_LENGTH) {
+            return HoltWinters.INIT_LENGTH;
+        }
+        if (length >= HoltLinearTrend.MIN_LENGTH) {
+            return HoltLinearTrend.INIT_LENGTH;
+        }
+        return SimpleExponentialSmoothing.INIT_LENGTH;
+    }
+
+    /**
+     * The history of one user at one data version and month, and the
+     * models fitted to it so far. Models are fitted the first time a series
+     * is projected.
+     */
+    static final class UserForecasts {
+
+        private static final String INCOME = "income";
+        private static final String EXPENSES = "expenses";
+
+        private final Long userId;
+        private final long dataVersion;
+        private final int currentMonthId;
+        private final ForecastState state;
+        private final Map<String, ForecastModel> models = new ConcurrentHashMap<>();
+
+        UserForecasts(Long userId, long dataVersion, int currentMonthId, ForecastState state) {
+            this.userId = userId;
+            this.dataVersion = dataVersion;
+            this.currentMonthId = currentMonthId;
+            this.state = state;
+        }
+
+        ForecastState getState() {
+            return state;
+        }
+
+        /**
+         * @return Income in cents of the given number of months from
+         * fromMonthId on
+         */
+        double[] income(int fromMonthId, int months) {
+            return project(INCOME, state.getIncomeSeries(), fromMonthId, months);
+        }
+
+        /**
+         * @return Expenses in cents as positive amounts, like {@link #income}
+         */
+        double[] expenses(int fromMonthId, int months) {
+            return project(EXPENSES, state.getExpenseSeries(), fromMonthId, months);
+        }
+
+        /**
+         * @return Income in cents of one category id, like {@link #income}
+         */
+        double[] income(int categoryId, int fromMonthId, int months) {
+            return project(INCOME + ":" + categoryId, state.getIncomeSeries(categoryId), fromMonthId, months);
+        }
+
+        /**
+         * @return Expenses in cents of one category id, like {@link #expenses}
+         */
+        double[] expenses(int categoryId, int fromMonthId, int months) {
+            return project(EXPENSES + ":" + categoryId, state.getExpenseSeries(categoryId), fromMonthId, months);
+        }
+
+        // Complete months of the series come from history, later months from the model, none are negative
+        private double[] project(String name, double[] series, int fromMonthId, int months) {
+            double[] projected = new double[Math.max(0, months)];
+            if (series.length == 0 || months <= 0) {
+                return projected;
+            }
+
+            // The current month is still filling up; leave it out unless it is all there is
+            int complete = currentMonthId - state.getFirstMonthId();
+            if (complete > 0 && complete < series.length) {
+                series = Arrays.copyOf(series, complete);
+            }
+
+            int lastMonthId = state.getFirstMonthId() + series.length - 1;
+            int horizon = fromMonthId + months - 1 - lastMonthId;
+            double[] forecast = null;
+            if (horizon > 0) {
+                // Fitted outside the map so slow fits never block other series; a concurrent
+                // fit of the same series gives the same model, the first one is kept
+                ForecastModel model = models.get(name);
+                if (model == null) {
+                    ForecastModel fitted = fit(series);
+                    logger.debug("Fitted {} to {} months of {} of user {}: mse {}",
+                            fitted.getName(), series.length, name, userId, fitted.getError());
+                    ForecastModel existing = models.putIfAbsent(name, fitted);
+                    model = existing != null ? existing : fitted;
+                }
+                forecast = model.forecast(horizon);
+            }
+
+            for (int i = 0; i < months; i++) {
+                int monthId = fromMonthId + i;
+                double value;
+                if (monthId > lastMonthId) {
+                    value = forecast[monthId - lastMonthId - 1];
+                } else if (monthId >= state.getFirstMonthId()) {
+                    value = series[monthId - state.getFirstMonthId()];
+                } else {
+                    value = 0;
+                }
+                projected[i] = Math.max(0, value);
+            }
+            return projected;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.datainsights.portal.service.impl;
+
+/**
+ * A forecasting model fitted to a monthly series. Models are immutable
+ * once fitted, so one instance can be cached and shared between requests.
+ */
+interface ForecastModel {
+
+    /**
+     * Smoothing factors the models try when fitting, for each parameter
+     */
+    double[] SMOOTHING_FACTORS = {0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9};
+
+    /**
+     * Trend damping factors the trend models try; a damped trend flattens
+     * out instead of being extrapolated over the whole horizon
+     */
+    double[] DAMPING_FACTORS = {0.8, 0.9, 0.98};
+
+    /**
+     * @return Forecasts for the 1st to horizon-th month after the series
+     */
+    double[] forecast(int horizon);
+
+    /**
+     * @return Mean squared one-step-ahead error over the months from the
+     * scoreFrom given when fitting, 0 if there are none. Models fitted with
+     * the same scoreFrom can be compared by it.
+     */
+    double getError();
+
+    /**
+     * @return Short name of the model for logs and responses
+     */
+    String getName();
+}
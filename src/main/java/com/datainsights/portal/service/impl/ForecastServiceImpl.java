@@ -1,67 +1,52 @@
 package com.datainsights.portal.service.impl;
 
-import com.datainsights.portal.model.Transaction;
 import com.datainsights.portal.model.User;
-import com.datainsights.portal.repository.TransactionRepository;
+import com.datainsights.portal.repository.MonthlyRollupRepository;
 import com.datainsights.portal.service.ForecastService;
+import com.datainsights.portal.service.impl.ForecastEngine.UserForecasts;
+import com.datainsights.portal.util.LongSumMap;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
-@Transactional
+@Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class ForecastServiceImpl implements ForecastService {
 
-    private final TransactionRepository transactionRepository;
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("MMM yyyy");
+
+    private static final double MONTHLY_INTEREST_RATE = 0.002; // 0.2% monthly interest
+
+    private final ForecastEngine forecastEngine;
 
     @Override
     public List<Map<String, Object>> generateForecast(User user, int months) {
-        // Get historical transactions for the user using user ID
-        List<Transaction> transactions = transactionRepository.findByCreatedBy(user.getId());
+        return forecastOf(loadForecasts(user), months);
+    }
 
-        if (transactions.isEmpty()) {
+    private List<Map<String, Object>> forecastOf(UserForecasts forecasts, int months) {
+        if (forecasts.getState().isEmpty()) {
             return generateDefaultForecast(months);
         }
 
-        // Analyze historical data
-        Map<String, List<Transaction>> transactionsByMonth = transactions.stream()
-                .collect(Collectors.groupingBy(t ->
-                        YearMonth.from(t.getDate()).toString()
-                ));
-
-        // Calculate average income and expenses
-        double averageMonthlyIncome = calculateAverageMonthlyIncome(transactionsByMonth);
-        double averageMonthlyExpenses = calculateAverageMonthlyExpenses(transactionsByMonth);
+        // Projected by the models fitted to the monthly income and expenses
+        LocalDate currentDate = LocalDate.now();
+        double[] income = forecasts.income(nextMonthId(currentDate), months);
+        double[] expenses = forecasts.expenses(nextMonthId(currentDate), months);
 
-        // Generate forecast based on historical data
         List<Map<String, Object>> forecastData = new ArrayList<>();
-        LocalDate currentDate = LocalDate.now();
 
         for (int i = 1; i <= months; i++) {
             LocalDate forecastDate = currentDate.plusMonths(i);
-            String monthName = forecastDate.format(DateTimeFormatter.ofPattern("MMM yyyy"));
-
-            // Apply slight growth trend
-            double trendFactor = 1.0 + (0.002 * i); // 0.2% growth per month
-            double projectedIncome = averageMonthlyIncome * trendFactor;
-            double projectedExpenses = averageMonthlyExpenses * trendFactor;
-
-            // Apply seasonal adjustments
-            int month = forecastDate.getMonthValue();
-            if (month == 12) { // December
-                projectedExpenses *= 1.2; // 20% higher expenses
-            } else if (month == 1) { // January
-                projectedExpenses *= 0.9; // 10% lower expenses
-            }
+            String monthName = forecastDate.format(MONTH_FORMATTER);
+
+            double projectedIncome = income[i - 1] / 100.0;
+            double projectedExpenses = expenses[i - 1] / 100.0;
 
             Map<String, Object> monthData = new HashMap<>();
             monthData.put("month", monthName);
@@ -77,37 +62,42 @@ public class ForecastServiceImpl implements ForecastService {
 
     @Override
     public List<Map<String, Object>> generateIncomeProjection(User user, int months) {
-        List<Transaction> incomeTransactions = transactionRepository
-                .findIncomeTransactionsByUser(user.getId());
+        return generateIncomeProjection(user, months, 0);
+    }
+
+    @Override
+    public List<Map<String, Object>> generateIncomeProjection(User user, int months, int parallelism) {
+        return incomeProjectionOf(loadForecasts(user), months, parallelism);
+    }
+
+    private List<Map<String, Object>> incomeProjectionOf(UserForecasts forecasts, int months, int parallelism) {
+        ForecastState state = forecasts.getState();
 
-        if (incomeTransactions.isEmpty()) {
+        if (state.getIncomeCount() == 0) {
             return generateDefaultIncomeProjection(months);
         }
 
-        // Group by category to analyze income sources
-        Map<String, BigDecimal> incomeByCategory = incomeTransactions.stream()
-                .collect(Collectors.groupingBy(
-                        Transaction::getCategory,
-                        Collectors.reducing(BigDecimal.ZERO, Transaction::getAmount, BigDecimal::add)
-                ));
+        // Project every income source with the model fitted to its own monthly series
+        LongSumMap incomeByCategory = state.getIncomeByCategory();
+        LocalDate currentDate = LocalDate.now();
+        double[][] projected = forecastEngine.projectCategories(
+                forecasts, incomeByCategory, false, nextMonthId(currentDate), months, parallelism);
 
         List<Map<String, Object>> projectionData = new ArrayList<>();
-        LocalDate currentDate = LocalDate.now();
 
         for (int i = 1; i <= months; i++) {
             LocalDate forecastDate = currentDate.plusMonths(i);
-            String monthName = forecastDate.format(DateTimeFormatter.ofPattern("MMM yyyy"));
+            String monthName = forecastDate.format(MONTH_FORMATTER);
 
             Map<String, Object> monthData = new HashMap<>();
             monthData.put("month", monthName);
 
             double totalIncome = 0;
-            for (Map.Entry<String, BigDecimal> entry : incomeByCategory.entrySet()) {
-                String category = entry.getKey();
-                double baseAmount = entry.getValue().doubleValue() / incomeTransactions.size();
-                double projectedAmount = baseAmount * (1.0 + (0.002 * i));
+            for (int c = 0; c < incomeByCategory.size(); c++) {
+                String category = state.getCategoryName(incomeByCategory.keyAt(c));
+                double projectedAmount = projected[c][i - 1] / 100.0;
 
-                monthData.put(category != null ? category.toLowerCase() : "other", Math.round(projectedAmount * 100.0) / 100.0);
+                monthData.put(!category.isEmpty() ? category.toLowerCase() : "other", Math.round(projectedAmount * 100.0) / 100.0);
                 totalIncome += projectedAmount;
             }
 
@@ -120,45 +110,42 @@ public class ForecastServiceImpl implements ForecastService {
 
     @Override
     public List<Map<String, Object>> generateExpenseProjection(User user, int months) {
-        List<Transaction> expenseTransactions = transactionRepository
-                .findExpenseTransactionsByUser(user.getId());
+        return generateExpenseProjection(user, months, 0);
+    }
+
+    @Override
+    public List<Map<String, Object>> generateExpenseProjection(User user, int months, int parallelism) {
+        return expenseProjectionOf(loadForecasts(user), months, parallelism);
+    }
+
+    private List<Map<String, Object>> expenseProjectionOf(UserForecasts forecasts, int months, int parallelism) {
+        ForecastState state = forecasts.getState();
 
-        if (expenseTransactions.isEmpty()) {
+        if (state.getExpenseCount() == 0) {
             return generateDefaultExpenseProjection(months);
         }
 
-        // Group by category - note: for expenses, we need absolute values
-        Map<String, BigDecimal> expensesByCategory = expenseTransactions.stream()
-                .collect(Collectors.groupingBy(
-                        Transaction::getCategory,
-                        Collectors.reducing(BigDecimal.ZERO,
-                                t -> t.getAmount().abs(), // Convert to absolute value for expenses
-                                BigDecimal::add)
-                ));
+        // Per category, as absolute values; seasonal categories get a seasonal model once there are two years
+        LongSumMap expensesByCategory = state.getExpensesByCategory();
+        LocalDate currentDate = LocalDate.now();
+        double[][] projected = forecastEngine.projectCategories(
+                forecasts, expensesByCategory, true, nextMonthId(currentDate), months, parallelism);
 
         List<Map<String, Object>> projectionData = new ArrayList<>();
-        LocalDate currentDate = LocalDate.now();
 
         for (int i = 1; i <= months; i++) {
             LocalDate forecastDate = currentDate.plusMonths(i);
-            String monthName = forecastDate.format(DateTimeFormatter.ofPattern("MMM yyyy"));
+            String monthName = forecastDate.format(MONTH_FORMATTER);
 
             Map<String, Object> monthData = new HashMap<>();
             monthData.put("month", monthName);
 
             double totalExpenses = 0;
-            for (Map.Entry<String, BigDecimal> entry : expensesByCategory.entrySet()) {
-                String category = entry.getKey();
-                double baseAmount = entry.getValue().doubleValue() / expenseTransactions.size();
-                double projectedAmount = baseAmount * (1.0 + (0.002 * i));
-
-                // Apply seasonal adjustments for specific categories
-                int month = forecastDate.getMonthValue();
-                if (category != null && category.equalsIgnoreCase("Shopping") && (month == 11 || month == 12)) {
-                    projectedAmount *= 1.3; // 30% higher during holidays
-                }
-
-                monthData.put(category != null ? category.toLowerCase() : "other", Math.round(projectedAmount * 100.0) / 100.0);
+            for (int c = 0; c < expensesByCategory.size(); c++) {
+                String category = state.getCategoryName(expensesByCategory.keyAt(c));
+                double projectedAmount = projected[c][i - 1] / 100.0;
+
+                monthData.put(!category.isEmpty() ? category.toLowerCase() : "other", Math.round(projectedAmount * 100.0) / 100.0);
                 totalExpenses += projectedAmount;
             }
 
@@ -171,45 +158,31 @@ public class ForecastServiceImpl implements ForecastService {
 
     @Override
     public List<Map<String, Object>> generateSavingsProjection(User user, int months) {
-        List<Transaction> transactions = transactionRepository.findByCreatedBy(user.getId());
+        return savingsProjectionOf(loadForecasts(user), months);
+    }
 
-        if (transactions.isEmpty()) {
+    private List<Map<String, Object>> savingsProjectionOf(UserForecasts forecasts, int months) {
+        ForecastState state = forecasts.getState();
+        if (state.isEmpty()) {
             return generateDefaultSavingsProjection(months);
         }
 
-        List<Transaction> incomeTransactions = transactions.stream()
-                .filter(t -> t.getAmount().compareTo(BigDecimal.ZERO) > 0)
-                .collect(Collectors.toList());
-
-        List<Transaction> expenseTransactions = transactions.stream()
-                .filter(t -> t.getAmount().compareTo(BigDecimal.ZERO) < 0)
-                .collect(Collectors.toList());
+        double cumulativeSavings = startingSavings(state) / 100.0;
 
-        double averageMonthlyIncome = calculateAverageMonthlyIncome(incomeTransactions);
-        double averageMonthlyExpenses = calculateAverageMonthlyExpenses(expenseTransactions);
-
-        double currentSavings = averageMonthlyIncome - averageMonthlyExpenses;
-        double cumulativeSavings = currentSavings * 3; // Assume 3 months of savings
+        // Monthly savings are the projected income less the projected expenses
+        LocalDate currentDate = LocalDate.now();
+        double[] income = forecasts.income(nextMonthId(currentDate), months);
+        double[] expenses = forecasts.expenses(nextMonthId(currentDate), months);
 
         List<Map<String, Object>> projectionData = new ArrayList<>();
-        LocalDate currentDate = LocalDate.now();
 
         for (int i = 1; i <= months; i++) {
             LocalDate forecastDate = currentDate.plusMonths(i);
-            String monthName = forecastDate.format(DateTimeFormatter.ofPattern("MMM yyyy"));
+            String monthName = forecastDate.format(MONTH_FORMATTER);
 
-            double trendFactor = 1.0 + (0.002 * i);
-            double projectedSavings = currentSavings * trendFactor;
-
-            // Apply seasonal adjustments
-            int month = forecastDate.getMonthValue();
-            if (month == 12) {
-                projectedSavings *= 0.7; // Lower savings in December
-            } else if (month == 1) {
-                projectedSavings *= 1.2; // Higher savings in January
-            }
+            double projectedSavings = (income[i - 1] - expenses[i - 1]) / 100.0;
 
-            double interestEarned = cumulativeSavings * 0.002; // 0.2% monthly interest
+            double interestEarned = cumulativeSavings * MONTHLY_INTEREST_RATE;
             cumulativeSavings += projectedSavings + interestEarned;
 
             Map<String, Object> monthData = new HashMap<>();
@@ -224,30 +197,78 @@ public class ForecastServiceImpl implements ForecastService {
         return projectionData;
     }
 
+    @Override
+    public List<Map<String, Object>> generateSavingsSimulation(User user, int months, int paths) {
+        UserForecasts forecasts = loadForecasts(user);
+        ForecastState state = forecasts.getState();
+        if (state.isEmpty()) {
+            return generateDefaultSavingsSimulation(months);
+        }
+
+        // Paths of income and expenses drawn around the projection, with the historical spread
+        LocalDate currentDate = LocalDate.now();
+        SavingsSimulation simulation = forecastEngine.simulateSavings(forecasts, nextMonthId(currentDate), months,
+                startingSavings(state), MONTHLY_INTEREST_RATE, paths);
+
+        List<Map<String, Object>> projectionData = new ArrayList<>();
+
+        for (int i = 1; i <= months; i++) {
+            LocalDate forecastDate = currentDate.plusMonths(i);
+            String monthName = forecastDate.format(MONTH_FORMATTER);
+
+            Map<String, Object> monthData = new HashMap<>();
+            monthData.put("month", monthName);
+            monthData.put("paths", simulation.getPaths());
+            monthData.put("p10", Math.round(simulation.percentile(i - 1, 0.1)) / 100.0);
+            monthData.put("p50", Math.round(simulation.percentile(i - 1, 0.5)) / 100.0);
+            monthData.put("p90", Math.round(simulation.percentile(i - 1, 0.9)) / 100.0);
+
+            projectionData.add(monthData);
+        }
+
+        return projectionData;
+    }
+
+    @Override
+    public Map<String, Object> generateAllForecasts(User user, int months) {
+        return generateAllForecasts(user, months, 0);
+    }
+
+    @Override
+    public Map<String, Object> generateAllForecasts(User user, int months, int parallelism) {
+        // One history read for every projection of the forecast page
+        UserForecasts forecasts = loadForecasts(user);
+
+        Map<String, Object> allForecasts = new HashMap<>();
+        allForecasts.put("forecast", forecastOf(forecasts, months));
+        allForecasts.put("income", incomeProjectionOf(forecasts, months, parallelism));
+        allForecasts.put("expenses", expenseProjectionOf(forecasts, months, parallelism));
+        allForecasts.put("savings", savingsProjectionOf(forecasts, months));
+        return allForecasts;
+    }
+
     @Override
     public Map<String, Object> generateCustomForecast(User user, LocalDate startDate, LocalDate endDate) {
-        List<Transaction> transactions = transactionRepository.findByCreatedBy(user.getId());
+        UserForecasts forecasts = loadForecasts(user);
 
-        if (transactions.isEmpty()) {
+        if (forecasts.getState().isEmpty()) {
             return generateDefaultCustomForecast(startDate, endDate);
         }
 
         long monthsBetween = startDate.until(endDate).toTotalMonths() + 1;
 
-        List<Transaction> incomeTransactions = transactions.stream()
-                .filter(t -> t.getAmount().compareTo(BigDecimal.ZERO) > 0)
-                .collect(Collectors.toList());
-
-        List<Transaction> expenseTransactions = transactions.stream()
-                .filter(t -> t.getAmount().compareTo(BigDecimal.ZERO) < 0)
-                .collect(Collectors.toList());
-
-        double averageMonthlyIncome = calculateAverageMonthlyIncome(incomeTransactions);
-        double averageMonthlyExpenses = calculateAverageMonthlyExpenses(expenseTransactions);
+        // Recorded months count as they are, months after the history are projected
+        int startMonthId = MonthlyRollupRepository.monthId(startDate.getYear(), startDate.getMonthValue());
+        double[] income = forecasts.income(startMonthId, (int) monthsBetween);
+        double[] expenses = forecasts.expenses(startMonthId, (int) monthsBetween);
 
         // Project totals
-        double totalIncome = averageMonthlyIncome * monthsBetween;
-        double totalExpenses = averageMonthlyExpenses * monthsBetween;
+        double totalIncome = 0;
+        double totalExpenses = 0;
+        for (int i = 0; i < monthsBetween; i++) {
+            totalIncome += income[i] / 100.0;
+            totalExpenses += expenses[i] / 100.0;
+        }
         double totalSavings = totalIncome - totalExpenses;
         double savingsRate = totalIncome > 0 ? (totalSavings / totalIncome) * 100 : 0;
 
@@ -264,66 +285,18 @@ public class ForecastServiceImpl implements ForecastService {
     }
 
     // Helper methods
-    private double calculateAverageMonthlyIncome(Map<String, List<Transaction>> transactionsByMonth) {
-        if (transactionsByMonth.isEmpty()) return 0.0;
-
-        return transactionsByMonth.values().stream()
-                .mapToDouble(monthTransactions ->
-                        monthTransactions.stream()
-                                .filter(t -> t.getAmount().compareTo(BigDecimal.ZERO) > 0)
-                                .map(Transaction::getAmount)
-                                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                                .doubleValue()
-                )
-                .average()
-                .orElse(0.0);
+    private UserForecasts loadForecasts(User user) {
+        return forecastEngine.forecastsOf(user.getId());
     }
 
-    private double calculateAverageMonthlyExpenses(Map<String, List<Transaction>> transactionsByMonth) {
-        if (transactionsByMonth.isEmpty()) return 0.0;
-
-        return transactionsByMonth.values().stream()
-                .mapToDouble(monthTransactions ->
-                        monthTransactions.stream()
-                                .filter(t -> t.getAmount().compareTo(BigDecimal.ZERO) < 0)
-                                .map(t -> t.getAmount().abs())
-                                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                                .doubleValue()
-                )
-                .average()
-                .orElse(0.0);
+    // Savings the projections start from, in cents: three months of the average net savings,
+    // averaged over the months that have income, respectively expenses
+    private static double startingSavings(ForecastState state) {
+        return (state.getMeanIncomeOfIncomeMonths() - state.getMeanExpensesOfExpenseMonths()) * 3;
     }
 
-    private double calculateAverageMonthlyIncome(List<Transaction> transactions) {
-        if (transactions.isEmpty()) return 0.0;
-
-        Map<YearMonth, BigDecimal> incomeByMonth = transactions.stream()
-                .collect(Collectors.groupingBy(
-                        t -> YearMonth.from(t.getDate()),
-                        Collectors.reducing(BigDecimal.ZERO, Transaction::getAmount, BigDecimal::add)
-                ));
-
-        return incomeByMonth.values().stream()
-                .mapToDouble(BigDecimal::doubleValue)
-                .average()
-                .orElse(0.0);
-    }
-
-    private double calculateAverageMonthlyExpenses(List<Transaction> transactions) {
-        if (transactions.isEmpty()) return 0.0;
-
-        Map<YearMonth, BigDecimal> expensesByMonth = transactions.stream()
-                .collect(Collectors.groupingBy(
-                        t -> YearMonth.from(t.getDate()),
-                        Collectors.reducing(BigDecimal.ZERO,
-                                t -> t.getAmount().abs(),
-                                BigDecimal::add)
-                ));
-
-        return expensesByMonth.values().stream()
-                .mapToDouble(BigDecimal::doubleValue)
-                .average()
-                .orElse(0.0);
+    private static int nextMonthId(LocalDate date) {
+        return MonthlyRollupRepository.monthId(date.getYear(), date.getMonthValue()) + 1;
     }
 
     // Default forecast methods for users with no transaction history
@@ -333,7 +306,7 @@ public class ForecastServiceImpl implements ForecastService {
 
         for (int i = 1; i <= months; i++) {
             LocalDate forecastDate = currentDate.plusMonths(i);
-            String monthName = forecastDate.format(DateTimeFormatter.ofPattern("MMM yyyy"));
+            String monthName = forecastDate.format(MONTH_FORMATTER);
 
             Map<String, Object> monthData = new HashMap<>();
             monthData.put("month", monthName);
@@ -353,7 +326,7 @@ public class ForecastServiceImpl implements ForecastService {
 
         for (int i = 1; i <= months; i++) {
             LocalDate forecastDate = currentDate.plusMonths(i);
-            String monthName = forecastDate.format(DateTimeFormatter.ofPattern("MMM yyyy"));
+            String monthName = forecastDate.format(MONTH_FORMATTER);
 
             Map<String, Object> monthData = new HashMap<>();
             monthData.put("month", monthName);
@@ -371,7 +344,7 @@ public class ForecastServiceImpl implements ForecastService {
 
         for (int i = 1; i <= months; i++) {
             LocalDate forecastDate = currentDate.plusMonths(i);
-            String monthName = forecastDate.format(DateTimeFormatter.ofPattern("MMM yyyy"));
+            String monthName = forecastDate.format(MONTH_FORMATTER);
 
             Map<String, Object> monthData = new HashMap<>();
             monthData.put("month", monthName);
@@ -389,7 +362,7 @@ public class ForecastServiceImpl implements ForecastService {
 
         for (int i = 1; i <= months; i++) {
             LocalDate forecastDate = currentDate.plusMonths(i);
-            String monthName = forecastDate.format(DateTimeFormatter.ofPattern("MMM yyyy"));
+            String monthName = forecastDate.format(MONTH_FORMATTER);
 
             Map<String, Object> monthData = new HashMap<>();
             monthData.put("month", monthName);
@@ -403,6 +376,27 @@ public class ForecastServiceImpl implements ForecastService {
         return projectionData;
     }
 
+    private List<Map<String, Object>> generateDefaultSavingsSimulation(int months) {
+        List<Map<String, Object>> projectionData = new ArrayList<>();
+        LocalDate currentDate = LocalDate.now();
+
+        for (int i = 1; i <= months; i++) {
+            LocalDate forecastDate = currentDate.plusMonths(i);
+            String monthName = forecastDate.format(MONTH_FORMATTER);
+
+            Map<String, Object> monthData = new HashMap<>();
+            monthData.put("month", monthName);
+            monthData.put("paths", 0);
+            monthData.put("p10", 0.0);
+            monthData.put("p50", 0.0);
+            monthData.put("p90", 0.0);
+
+            projectionData.add(monthData);
+        }
+
+        return projectionData;
+    }
+
     private Map<String, Object> generateDefaultCustomForecast(LocalDate startDate, LocalDate endDate) {
         Map<String, Object> forecastSummary = new HashMap<>();
         long monthsBetween = startDate.until(endDate).toTotalMonths() + 1;
@@ -0,0 +1,271 @@
+package com.datainsights.portal.service.impl;
+
+import com.datainsights.portal.repository.MonthlyRollupRepository.MonthlyTotals;
+import com.datainsights.portal.util.CategoryDictionary;
+import com.datainsights.portal.util.LongSumMap;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * What the forecasts know about a user's history: income and expenses per
+ * month, totals per category and the mean and variance of the monthly
+ * sums. Built from the monthly rollup, so its size depends on the number
+ * of months and categories, not on the number of transactions.
+ * <p>
+ * The per-month getters and moments only cover months that have
+ * transactions; the series for the forecasting models cover every month
+ * from the first to the last one with transactions, with zeros for the
+ * months in between. Amounts are in cents.
+ */
+final class ForecastState {
+
+    private final int months;
+    private final int[] monthIds;
+    private final long[] income;
+    private final long[] expenses;
+    private final long[] monthIncomeCount;
+    private final long[] monthExpenseCount;
+
+    // Dense series, index 0 is firstMonthId; per category indexed by category id
+    private final int firstMonthId;
+    private final int span;
+    private long[][] categoryIncome = new long[0][];
+    private long[][] categoryExpenses = new long[0][];
+
+    private final CategoryDictionary categories = new CategoryDictionary();
+    private final LongSumMap incomeByCategory = new LongSumMap();
+    private final LongSumMap expensesByCategory = new LongSumMap();
+    private long incomeCount;
+    private long expenseCount;
+
+    // Running moments of the monthly sums (Welford)
+    private double incomeMean;
+    private double incomeM2;
+    private double expensesMean;
+    private double expensesM2;
+
+    /**
+     * @param rows Monthly rollup rows of one user, ordered by month
+     */
+    ForecastState(List<MonthlyTotals> rows) {
+        int[] ids = new int[rows.size()];
+        long[] monthIncome = new long[rows.size()];
+        long[] monthExpenses = new long[rows.size()];
+        long[] incomeCounts = new long[rows.size()];
+        long[] expenseCounts = new long[rows.size()];
+        this.firstMonthId = rows.isEmpty() ? 0 : rows.get(0).monthId();
+        this.span = rows.isEmpty() ? 0 : rows.get(rows.size() - 1).monthId() - firstMonthId + 1;
+
+        int n = 0;
+        for (MonthlyTotals row : rows) {
+            if (n == 0 || ids[n - 1] != row.monthId()) {
+                ids[n++] = row.monthId();
+            }
+            int m = n - 1;
+            long rowIncome = row.income();
+            long rowExpenses = row.expenses();
+            monthIncome[m] += rowIncome;
+            monthExpenses[m] += rowExpenses;
+            incomeCounts[m] += row.incomeCount();
+            expenseCounts[m] += row.expenseCount();
+
+            String category = row.category() != null ? row.category() : "";
+            int id = categories.idOf(category);
+            if (id >= categoryIncome.length) {
+                categoryIncome = Arrays.copyOf(categoryIncome, id + 1);
+                categoryExpenses = Arrays.copyOf(categoryExpenses, id + 1);
+                categoryIncome[id] = new long[span];
+                categoryExpenses[id] = new long[span];
+            }
+            categoryIncome[id][row.monthId() - firstMonthId] += rowIncome;
+            categoryExpenses[id][row.monthId() - firstMonthId] += rowExpenses;
+            if (row.incomeCount() > 0) {
+                incomeByCategory.add(id, rowIncome);
+            }
+            if (row.expenseCount() > 0) {
+                expensesByCategory.add(id, rowExpenses);
+            }
+            incomeCount += row.incomeCount();
+            expenseCount += row.expenseCount();
+        }
+
+        this.months = n;
+        this.monthIds = Arrays.copyOf(ids, n);
+        this.income = Arrays.copyOf(monthIncome, n);
+        this.expenses = Arrays.copyOf(monthExpenses, n);
+        this.monthIncomeCount = Arrays.copyOf(incomeCounts, n);
+        this.monthExpenseCount = Arrays.copyOf(expenseCounts, n);
+
+        for (int m = 0; m < n; m++) {
+            double incomeDelta = income[m] - incomeMean;
+            incomeMean += incomeDelta / (m + 1);
+            incomeM2 += incomeDelta * (income[m] - incomeMean);
+
+            double expensesDelta = expenses[m] - expensesMean;
+            expensesMean += expensesDelta / (m + 1);
+            expensesM2 += expensesDelta * (expenses[m] - expensesMean);
+        }
+    }
+
+    boolean isEmpty() {
+        return months == 0;
+    }
+
+    /**
+     * @return Number of months with transactions
+     */
+    int getMonthCount() {
+        return months;
+    }
+
+    /**
+     * @return Month id (year * 12 + month - 1) of the index-th month
+     */
+    int getMonthId(int index) {
+        return monthIds[index];
+    }
+
+    long getMonthlyIncome(int index) {
+        return income[index];
+    }
+
+    long getMonthlyExpenses(int index) {
+        return expenses[index];
+    }
+
+    /**
+     * @return Month id of the first month of the series
+     */
+    int getFirstMonthId() {
+        return firstMonthId;
+    }
+
+    /**
+     * @return Monthly income from the first to the last month with
+     * transactions, zero for months without any
+     */
+    double[] getIncomeSeries() {
+        double[] series = new double[span];
+        for (int m = 0; m < months; m++) {
+            series[monthIds[m] - firstMonthId] = income[m];
+        }
+        return series;
+    }
+
+    /**
+     * @return Monthly expenses as positive amounts, like {@link #getIncomeSeries}
+     */
+    double[] getExpenseSeries() {
+        double[] series = new double[span];
+        for (int m = 0; m < months; m++) {
+            series[monthIds[m] - firstMonthId] = expenses[m];
+        }
+        return series;
+    }
+
+    /**
+     * @return Monthly income of one category id, like {@link #getIncomeSeries}
+     */
+    double[] getIncomeSeries(int categoryId) {
+        return toDoubles(categoryIncome[categoryId]);
+    }
+
+    /**
+     * @return Monthly expenses of one category id, like {@link #getExpenseSeries}
+     */
+    double[] getExpenseSeries(int categoryId) {
+        return toDoubles(categoryExpenses[categoryId]);
+    }
+
+    long getIncomeCount() {
+        return incomeCount;
+    }
+
+    long getExpenseCount() {
+        return expenseCount;
+    }
+
+    /**
+     * @return Category id to income in cents, ids as in {@link #getCategoryName}
+     */
+    LongSumMap getIncomeByCategory() {
+        return incomeByCategory;
+    }
+
+    /**
+     * @return Category id to expenses in cents, as positive amounts
+     */
+    LongSumMap getExpensesByCategory() {
+        return expensesByCategory;
+    }
+
+    /**
+     * @return The name of a category id; "" for transactions without one
+     */
+    String getCategoryName(int id) {
+        return categories.nameOf(id);
+    }
+
+    /**
+     * @return Mean monthly income in cents over all months with transactions
+     */
+    double getMeanMonthlyIncome() {
+        return incomeMean;
+    }
+
+    /**
+     * @return Mean monthly expenses in cents over all months with transactions
+     */
+    double getMeanMonthlyExpenses() {
+        return expensesMean;
+    }
+
+    /**
+     * @return Sample standard deviation of the monthly income in cents
+     */
+    double getMonthlyIncomeStdDev() {
+        return months > 1 ? Math.sqrt(incomeM2 / (months - 1)) : 0.0;
+    }
+
+    /**
+     * @return Sample standard deviation of the monthly expenses in cents
+     */
+    double getMonthlyExpensesStdDev() {
+        return months > 1 ? Math.sqrt(expensesM2 / (months - 1)) : 0.0;
+    }
+
+    /**
+     * @return Mean monthly income in cents over the months that have income
+     */
+    double getMeanIncomeOfIncomeMonths() {
+        return meanOver(income, monthIncomeCount);
+    }
+
+    /**
+     * @return Mean monthly expenses in cents over the months that have expenses
+     */
+    double getMeanExpensesOfExpenseMonths() {
+        return meanOver(expenses, monthExpenseCount);
+    }
+
+    private static double[] toDoubles(long[] values) {
+        double[] series = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            series[i] = values[i];
+        }
+        return series;
+    }
+
+    private double meanOver(long[] sums, long[] counts) {
+        long total = 0;
+        int withData = 0;
+        for (int m = 0; m < months; m++) {
+            if (counts[m] > 0) {
+                total += sums[m];
+                withData++;
+            }
+        }
+        return withData > 0 ? (double) total / withData : 0.0;
+    }
+}
@@ -0,0 +1,93 @@
+package com.datainsights.portal.service.impl;
+
+/**
+ * Holt's linear trend method with a damped trend: a smoothed level plus a
+ * smoothed trend that fades by phi every month, so forecasts continue the
+ * recent slope and then level off. Needs at least three months.
+ */
+final class HoltLinearTrend implements ForecastModel {
+
+    /**
+     * Months used to initialise level and trend; errors can be scored from here on
+     */
+    static final int INIT_LENGTH = 2;
+    static final int MIN_LENGTH = INIT_LENGTH + 1;
+
+    private final double alpha;
+    private final double beta;
+    private final double phi;
+    private final double level;
+    private final double trend;
+    private final double error;
+
+    private HoltLinearTrend(double alpha, double beta, double phi, double level, double trend, double error) {
+        this.alpha = alpha;
+        this.beta = beta;
+        this.phi = phi;
+        this.level = level;
+        this.trend = trend;
+        this.error = error;
+    }
+
+    /**
+     * Fit the smoothing and damping factors by grid search on the
+     * one-step-ahead error
+     *
+     * @param scoreFrom First month whose error is scored, at least {@link #INIT_LENGTH}
+     * @return The fitted model, or null if the series is too short
+     */
+    static HoltLinearTrend fit(double[] series, int scoreFrom) {
+        if (series.length < MIN_LENGTH) {
+            return null;
+        }
+
+        HoltLinearTrend best = null;
+        for (double alpha : SMOOTHING_FACTORS) {
+            for (double beta : SMOOTHING_FACTORS) {
+                for (double phi : DAMPING_FACTORS) {
+                    double level = series[1];
+                    double trend = series[1] - series[0];
+                    double squared = 0;
+                    for (int t = INIT_LENGTH; t < series.length; t++) {
+                        double residual = series[t] - (level + phi * trend);
+                        if (t >= scoreFrom) {
+                            squared += residual * residual;
+                        }
+
+                        double previousLevel = level;
+                        level = alpha * series[t] + (1 - alpha) * (level + phi * trend);
+                        trend = beta * (level - previousLevel) + (1 - beta) * phi * trend;
+                    }
+                    double error = series.length > scoreFrom ? squared / (series.length - scoreFrom) : 0;
+                    if (best == null || error < best.error) {
+                        best = new HoltLinearTrend(alpha, beta, phi, level, trend, error);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public double[] forecast(int horizon) {
+        double[] forecast = new double[horizon];
+        double damping = 0;
+        double factor = 1;
+        for (int h = 0; h < horizon; h++) {
+            factor *= phi;
+            damping += factor;
+            forecast[h] = level + damping * trend;
+        }
+        return forecast;
+    }
+
+    @Override
+    public double getError() {
+        return error;
+    }
+
+    @Override
+    public String getName() {
+        return "holt(alpha=" + alpha + ", beta=" + beta + ", phi=" + phi + ")";
+    }
+}
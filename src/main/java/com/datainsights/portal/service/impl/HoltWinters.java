@@ -0,0 +1,132 @@
+package com.datainsights.portal.service.impl;
+
+/**
+ * Additive Holt-Winters with a damped trend: level, trend and a twelve
+ * month seasonal pattern, so forecasts repeat e.g. December spending.
+ * The first two years only initialise the model, so it needs at least one
+ * more month to be fitted on.
+ */
+final class HoltWinters implements ForecastModel {
+
+    static final int SEASON = 12;
+
+    /**
+     * Months used to initialise level, trend and seasonal indices; errors
+     * can be scored from here on
+     */
+    static final int INIT_LENGTH = 2 * SEASON;
+    static final int MIN_LENGTH = INIT_LENGTH + 1;
+
+    private final double alpha;
+    private final double beta;
+    private final double gamma;
+    private final double phi;
+    private final double level;
+    private final double trend;
+    // Seasonal indices, index 0 is the first month after the series
+    private final double[] seasonal;
+    private final double error;
+
+    private HoltWinters(double alpha, double beta, double gamma, double phi, double level, double trend,
+                        double[] seasonal, double error) {
+        this.alpha = alpha;
+        this.beta = beta;
+        this.gamma = gamma;
+        this.phi = phi;
+        this.level = level;
+        this.trend = trend;
+        this.seasonal = seasonal;
+        this.error = error;
+    }
+
+    /**
+     * Fit the smoothing and damping factors by grid search on the
+     * one-step-ahead error after the two initialisation years
+     *
+     * @param scoreFrom First month whose error is scored, at least {@link #INIT_LENGTH}
+     * @return The fitted model, or null if the series is too short
+     */
+    static HoltWinters fit(double[] series, int scoreFrom) {
+        if (series.length < MIN_LENGTH) {
+            return null;
+        }
+
+        // Trend from the means of the two years, indices as the average offset from that trend line
+        double firstMean = 0;
+        double secondMean = 0;
+        for (int i = 0; i < SEASON; i++) {
+            firstMean += series[i] / SEASON;
+            secondMean += series[SEASON + i] / SEASON;
+        }
+        double initialTrend = (secondMean - firstMean) / SEASON;
+        double[] initialSeasonal = new double[SEASON];
+        for (int i = 0; i < SEASON; i++) {
+            double first = series[i] - (firstMean + (i - (SEASON - 1) / 2.0) * initialTrend);
+            double second = series[SEASON + i] - (secondMean + (i - (SEASON - 1) / 2.0) * initialTrend);
+            initialSeasonal[i] = (first + second) / 2;
+        }
+        double initialLevel = secondMean + (SEASON - 1) / 2.0 * initialTrend;
+
+        HoltWinters best = null;
+        double[] seasonal = new double[SEASON];
+        for (double alpha : SMOOTHING_FACTORS) {
+            for (double beta : SMOOTHING_FACTORS) {
+                for (double gamma : SMOOTHING_FACTORS) {
+                    for (double phi : DAMPING_FACTORS) {
+                        System.arraycopy(initialSeasonal, 0, seasonal, 0, SEASON);
+                        double level = initialLevel;
+                        double trend = initialTrend;
+                        double squared = 0;
+
+                        for (int t = INIT_LENGTH; t < series.length; t++) {
+                            int s = t % SEASON;
+                            double residual = series[t] - (level + phi * trend + seasonal[s]);
+                            if (t >= scoreFrom) {
+                                squared += residual * residual;
+                            }
+
+                            double previousLevel = level;
+                            level = alpha * (series[t] - seasonal[s]) + (1 - alpha) * (level + phi * trend);
+                            trend = beta * (level - previousLevel) + (1 - beta) * phi * trend;
+                            seasonal[s] = gamma * (series[t] - level) + (1 - gamma) * seasonal[s];
+                        }
+
+                        double error = series.length > scoreFrom ? squared / (series.length - scoreFrom) : 0;
+                        if (best == null || error < best.error) {
+                            // Rotate so index 0 is the season position of the first forecast month
+                            double[] ahead = new double[SEASON];
+                            for (int h = 0; h < SEASON; h++) {
+                                ahead[h] = seasonal[(series.length + h) % SEASON];
+                            }
+                            best = new HoltWinters(alpha, beta, gamma, phi, level, trend, ahead, error);
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public double[] forecast(int horizon) {
+        double[] forecast = new double[horizon];
+        double damping = 0;
+        double factor = 1;
+        for (int h = 0; h < horizon; h++) {
+            factor *= phi;
+            damping += factor;
+            forecast[h] = level + damping * trend + seasonal[h % SEASON];
+        }
+        return forecast;
+    }
+
+    @Override
+    public double getError() {
+        return error;
+    }
+
+    @Override
+    public String getName() {
+        return "holt-winters(alpha=" + alpha + ", beta=" + beta + ", gamma=" + gamma + ", phi=" + phi + ")";
+    }
+}
@@ -0,0 +1,92 @@
+package com.datainsights.portal.service.impl;
+
+import com.datainsights.portal.model.ImportJob;
+import com.datainsights.portal.repository.ImportJobRepository;
+import com.datainsights.portal.service.FileStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Picks up imports that were queued or running when the application
+ * stopped. They are handed back to the import executor, which resumes each
+ * one from its last committed checkpoint. Chunked uploads that were never
+ * completed are removed after a while.
+ */
+@Component
+public class ImportJobRecovery {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportJobRecovery.class);
+
+    private final ImportJobRepository importJobRepository;
+    private final FileStorageService fileStorageService;
+    private final ImportJobRunner importJobRunner;
+    private final long uploadExpiryHours;
+
+    public ImportJobRecovery(ImportJobRepository importJobRepository, FileStorageService fileStorageService,
+                             ImportJobRunner importJobRunner,
+                             @Value("${import.upload.expire-after-hours:24}") long uploadExpiryHours) {
+        this.importJobRepository = importJobRepository;
+        this.fileStorageService = fileStorageService;
+        this.importJobRunner = importJobRunner;
+        this.uploadExpiryHours = uploadExpiryHours;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedImports() {
+        List<ImportJob> interrupted;
+        try {
+            interrupted = importJobRepository.findByStatusInOrderByCreatedAtAsc(List.of("queued", "processing"));
+        } catch (Exception e) {
+            logger.error("Could not look up interrupted imports: {}", e.getMessage(), e);
+            return;
+        }
+
+        for (ImportJob job : interrupted) {
+            if (job.getStoredFileName() == null || !Files.exists(fileStorageService.getFilePath(job.getStoredFileName()))) {
+                markFailed(job, "The uploaded file is no longer available, please upload it again");
+                continue;
+            }
+
+            try {
+                logger.info("Resuming interrupted import {} ({})", job.getId(), job.getFileName());
+                importJobRunner.run(job.getId());
+            } catch (TaskRejectedException e) {
+                markFailed(job, "Import queue is full, please try again later");
+            }
+        }
+    }
+
+    /**
+     * Expire chunked uploads that have not been completed in time and free
+     * their partial files
+     */
+    @Scheduled(fixedDelay = 60 * 60 * 1000, initialDelay = 10 * 60 * 1000)
+    public void expireAbandonedUploads() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(uploadExpiryHours);
+
+        for (ImportJob job : importJobRepository.findByStatusAndCreatedAtBefore("uploading", cutoff)) {
+            if (job.getStoredFileName() != null) {
+                fileStorageService.deleteFile(job.getStoredFileName());
+            }
+            markFailed(job, "The upload was not completed within " + uploadExpiryHours + " hours");
+        }
+    }
+
+    private void markFailed(ImportJob job, String message) {
+        logger.warn("Marking import {} as failed: {}", job.getId(), message);
+        job.setStatus("failed");
+        job.setErrorMessage(message);
+        job.setCompletedAt(LocalDateTime.now());
+        importJobRepository.save(job);
+    }
+}
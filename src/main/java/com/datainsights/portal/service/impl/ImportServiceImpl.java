@@ -4,19 +4,34 @@ import com.datainsights.portal.model.ImportJob;
 import com.datainsights.portal.model.User;
 import com.datainsights.portal.repository.ImportJobRepository;
 import com.datainsights.portal.repository.UserRepository;
+import com.datainsights.portal.service.FileStorageService;
 import com.datainsights.portal.service.ImportService;
+import com.datainsights.portal.util.CategoryDictionary;
+import com.datainsights.portal.util.FieldParser;
+import com.datainsights.portal.util.FileParserUtil;
+import com.datainsights.portal.util.MappedCsvReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -26,46 +41,146 @@ public class ImportServiceImpl implements ImportService {
 
     private final ImportJobRepository importJobRepository;
     private final UserRepository userRepository;
+    private final FileStorageService fileStorageService;
+    private final ImportJobRunner importJobRunner;
+    private final RawImportArchiver rawImportArchiver;
+    private final long maxUploadBytes;
+    private final long maxChunkBytes;
 
-    public ImportServiceImpl(ImportJobRepository importJobRepository, UserRepository userRepository) {
+    public ImportServiceImpl(ImportJobRepository importJobRepository, UserRepository userRepository,
+                             FileStorageService fileStorageService, ImportJobRunner importJobRunner,
+                             RawImportArchiver rawImportArchiver,
+                             @Value("${import.upload.max-file-bytes:1073741824}") long maxUploadBytes,
+                             @Value("${import.upload.max-chunk-bytes:16777216}") long maxChunkBytes) {
         this.importJobRepository = importJobRepository;
         this.userRepository = userRepository;
+        this.fileStorageService = fileStorageService;
+        this.importJobRunner = importJobRunner;
+        this.rawImportArchiver = rawImportArchiver;
+        this.maxUploadBytes = maxUploadBytes;
+        this.maxChunkBytes = maxChunkBytes;
     }
 
     @Override
     public ImportJob processImportFile(MultipartFile file, String category, String importType, String description, Authentication authentication) {
         User user = getUserFromAuthentication(authentication);
 
+        // Keep a copy of the upload, the multipart temp file is gone once the request ends
+        String storedFileName = fileStorageService.storeFile(file);
+
         // Create a new import job
         ImportJob importJob = new ImportJob(
                 file.getOriginalFilename(),
                 category,
                 importType,
                 description,
-                "processing",
+                "queued",
                 user.getId()
         );
+        importJob.setStoredFileName(storedFileName);
+        importJob.setRowsProcessed(0);
+        importJob.setRowsFailed(0);
+        importJob.setRowsSkipped(0);
 
         // Save the job to get an ID
         importJob = importJobRepository.save(importJob);
 
         try {
-            // Process the file - count rows for now
-            int recordCount = countRecords(file);
-            importJob.setRecordCount(recordCount);
-            importJob.setStatus("completed");
+            // Hand the file to a background worker and return right away
+            importJobRunner.run(importJob.getId());
+        } catch (TaskRejectedException e) {
+            logger.warn("Import queue is full, rejecting import {}", importJob.getId());
+            importJob.setStatus("failed");
+            importJob.setErrorMessage("Import queue is full, please try again later");
             importJob.setCompletedAt(LocalDateTime.now());
+            importJobRepository.save(importJob);
+            fileStorageService.deleteFile(storedFileName);
+            throw e;
+        }
 
-            // In a real implementation, you would process the file data here
-            // This might involve parsing the CSV/Excel and storing data in appropriate tables
+        return importJob;
+    }
 
-            return importJobRepository.save(importJob);
-        } catch (Exception e) {
-            logger.error("Error processing import file: {}", e.getMessage(), e);
-            importJob.setStatus("failed");
-            importJob.setCompletedAt(LocalDateTime.now());
-            return importJobRepository.save(importJob);
+    @Override
+    public ImportJob startChunkedUpload(String fileName, long totalSize, String category, String importType,
+                                        String description, Authentication authentication) {
+        User user = getUserFromAuthentication(authentication);
+
+        if (fileName == null || "UNKNOWN".equals(FileParserUtil.getFileType(fileName))) {
+            throw new IllegalArgumentException("Only .csv and .xlsx files can be imported");
+        }
+        if (totalSize <= 0 || totalSize > maxUploadBytes) {
+            throw new IllegalArgumentException("File size must be between 1 and " + maxUploadBytes + " bytes");
+        }
+
+        ImportJob importJob = new ImportJob(fileName, category, importType, description, "uploading", user.getId());
+        importJob.setStoredFileName(fileStorageService.createEmptyFile(fileName));
+        importJob.setUploadSize(totalSize);
+        importJob.setRowsProcessed(0);
+        importJob.setRowsFailed(0);
+        importJob.setRowsSkipped(0);
+
+        return importJobRepository.save(importJob);
+    }
+
+    @Override
+    public long appendUploadChunk(Long id, long offset, InputStream data, Authentication authentication) {
+        ImportJob importJob = getImportJobById(id, authentication);
+        if (importJob == null) {
+            return -1;
         }
+        if (!"uploading".equals(importJob.getStatus())) {
+            throw new IllegalStateException("Upload " + id + " is no longer accepting chunks");
+        }
+
+        // Never accept more than the declared size
+        long limit = Math.min(maxChunkBytes, importJob.getUploadSize() - offset);
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Chunk at offset " + offset + " is past the end of the file");
+        }
+        return fileStorageService.appendChunk(importJob.getStoredFileName(), offset, data, limit);
+    }
+
+    @Override
+    public long getUploadedBytes(Long id, Authentication authentication) {
+        ImportJob importJob = getImportJobById(id, authentication);
+        if (importJob == null || importJob.getStoredFileName() == null) {
+            return -1;
+        }
+        return fileStorageService.getFileSize(importJob.getStoredFileName());
+    }
+
+    @Override
+    public ImportJob completeChunkedUpload(Long id, Authentication authentication) {
+        ImportJob importJob = getImportJobById(id, authentication);
+        if (importJob == null) {
+            return null;
+        }
+        if (!"uploading".equals(importJob.getStatus())) {
+            throw new IllegalStateException("Upload " + id + " has already been completed");
+        }
+
+        long received = fileStorageService.getFileSize(importJob.getStoredFileName());
+        if (received != importJob.getUploadSize()) {
+            throw new IllegalStateException("Upload is incomplete: received " + received
+                    + " of " + importJob.getUploadSize() + " bytes");
+        }
+
+        importJob.setStatus("queued");
+        importJob = importJobRepository.save(importJob);
+
+        try {
+            importJobRunner.run(importJob.getId());
+        } catch (TaskRejectedException e) {
+            // Keep the assembled file, completing the upload can simply be retried later
+            logger.warn("Import queue is full, upload {} stays open", importJob.getId());
+            importJob.setStatus("uploading");
+            importJobRepository.save(importJob);
+            throw e;
+        }
+
+        logger.info("Chunked upload {} complete ({} bytes), queued for import", importJob.getId(), received);
+        return importJob;
     }
 
     @Override
@@ -102,6 +217,10 @@ public class ImportServiceImpl implements ImportService {
             // Check if the job belongs to the user
             if (job.getCreatedBy().equals(user.getId())) {
                 importJobRepository.delete(job);
+                if (job.getStoredFileName() != null) {
+                    fileStorageService.deleteFile(job.getStoredFileName());
+                }
+                rawImportArchiver.delete(job.getId());
                 return true;
             }
         }
@@ -109,26 +228,124 @@ public class ImportServiceImpl implements ImportService {
         return false;
     }
 
+    @Override
+    public Map<String, Object> validateStoredImport(Long id, Authentication authentication) throws IOException {
+        ImportJob job = getImportJobById(id, authentication);
+        if (job == null) {
+            return null;
+        }
+        if (job.getStoredFileName() == null || !"CSV".equals(FileParserUtil.getFileType(job.getFileName()))) {
+            throw new IllegalArgumentException("Only stored CSV imports can be validated");
+        }
+
+        Path file = fileStorageService.getFilePath(job.getStoredFileName());
+        if (!Files.exists(file)) {
+            throw new IllegalArgumentException("The stored file for import " + id + " no longer exists");
+        }
+
+        CategoryDictionary categories = new CategoryDictionary();
+        boolean dayFirst = FileParserUtil.detectDayFirst(file);
+        ValidationSummary summary = new ValidationSummary();
+
+        long start = System.nanoTime();
+        long bytes = MappedCsvReader.read(file, categories, dayFirst, summary);
+        long elapsedNanos = Math.max(System.nanoTime() - start, 1);
+
+        Map<String, Long> categoryCounts = new LinkedHashMap<>();
+        for (int categoryId = 0; categoryId < categories.size(); categoryId++) {
+            categoryCounts.put(categories.nameOf(categoryId), summary.categoryCounts[categoryId]);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("importId", job.getId());
+        result.put("fileName", job.getFileName());
+        result.put("rows", summary.validRows + summary.invalidRows);
+        result.put("validRows", summary.validRows);
+        result.put("invalidRows", summary.invalidRows);
+        result.put("unparsedDates", summary.unparsedDates);
+        result.put("totalIncome", BigDecimal.valueOf(summary.incomeCents, 2));
+        result.put("totalExpenses", BigDecimal.valueOf(summary.expenseCents, 2));
+        result.put("firstDate", summary.firstDay <= summary.lastDay ? LocalDate.ofEpochDay(summary.firstDay) : null);
+        result.put("lastDate", summary.firstDay <= summary.lastDay ? LocalDate.ofEpochDay(summary.lastDay) : null);
+        result.put("categories", categoryCounts);
+        result.put("bytesRead", bytes);
+        result.put("elapsedMs", elapsedNanos / 1_000_000);
+        result.put("throughputMBps", Math.round(bytes / (elapsedNanos / 1e9) / (1024 * 1024) * 10) / 10.0);
+
+        // Every valid row is either written or skipped as already imported, so the counts
+        // should agree once the import has finished
+        if ("completed".equals(job.getStatus()) && job.getRowsProcessed() != null) {
+            long imported = job.getRowsProcessed() + (job.getRowsSkipped() != null ? job.getRowsSkipped() : 0);
+            result.put("matchesImport", imported == summary.validRows);
+        }
+
+        logger.info("Validated import {}: {} rows in {} ms", id, summary.validRows + summary.invalidRows,
+                elapsedNanos / 1_000_000);
+        return result;
+    }
+
+    @Override
+    public boolean hasArchivedRows(Long id, Authentication authentication) {
+        ImportJob job = getImportJobById(id, authentication);
+        return job != null && rawImportArchiver.hasArchive(job.getId());
+    }
+
+    @Override
+    public long exportArchivedRows(Long id, Authentication authentication, OutputStream out) throws IOException {
+        ImportJob job = getImportJobById(id, authentication);
+        if (job == null) {
+            return 0;
+        }
+        return rawImportArchiver.exportCsv(job.getId(), out);
+    }
+
     private User getUserFromAuthentication(Authentication authentication) {
         String username = authentication.getName();
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
     }
 
-    private int countRecords(MultipartFile file) throws IOException {
-        // Simple method to count records in a CSV file
-        // For production, use a CSV parser library instead
-        int count = 0;
+    /**
+     * Accumulates the validation summary with primitive counters only
+     */
+    private static final class ValidationSummary implements MappedCsvReader.RecordVisitor {
 
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
-            // Skip header row
-            reader.readLine();
+        private long validRows;
+        private long invalidRows;
+        private long unparsedDates;
+        private long incomeCents;
+        private long expenseCents;
+        private int firstDay = Integer.MAX_VALUE;
+        private int lastDay = Integer.MIN_VALUE;
+        private long[] categoryCounts = new long[16];
+
+        @Override
+        public void onRecord(long rowNumber, int epochDay, long cents, int categoryId) {
+            validRows++;
+            if (cents >= 0) {
+                incomeCents += cents;
+            } else {
+                expenseCents -= cents;
+            }
 
-            while (reader.readLine() != null) {
-                count++;
+            if (epochDay == FieldParser.INVALID_DATE) {
+                unparsedDates++;
+            } else {
+                firstDay = Math.min(firstDay, epochDay);
+                lastDay = Math.max(lastDay, epochDay);
+            }
+
+            if (categoryId >= 0) {
+                if (categoryId >= categoryCounts.length) {
+                    categoryCounts = Arrays.copyOf(categoryCounts, categoryCounts.length * 2);
+                }
+                categoryCounts[categoryId]++;
             }
         }
 
-        return count;
+        @Override
+        public void onInvalidRecord(long rowNumber) {
+            invalidRows++;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,235 @@
+package com.datainsights.portal.service.impl;
+
+import com.datainsights.portal.model.ImportJob;
+import com.datainsights.portal.model.mongo.RawImportData;
+import com.datainsights.portal.repository.mongo.RawImportDataRepository;
+import com.datainsights.portal.util.ExcelStreamingParser;
+import com.datainsights.portal.util.FileParserUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archives the original rows of an import to Mongo and streams them back.
+ * <p>
+ * The rows are stored as CSV text in gzip compressed batch documents of at
+ * most rowsPerDocument rows and maxDocumentBytes uncompressed bytes, so a
+ * document stays far below the 16 MB BSON limit however large the file is.
+ * Reading an archive loads one batch document at a time.
+ */
+@Component
+public class RawImportArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(RawImportArchiver.class);
+
+    private final RawImportDataRepository rawImportDataRepository;
+    private final boolean enabled;
+    private final int rowsPerDocument;
+    private final int maxDocumentBytes;
+
+    public RawImportArchiver(RawImportDataRepository rawImportDataRepository,
+                             @Value("${import.archive.enabled:true}") boolean enabled,
+                             @Value("${import.archive.rows-per-document:5000}") int rowsPerDocument,
+                             @Value("${import.archive.max-document-bytes:8388608}") int maxDocumentBytes) {
+        this.rawImportDataRepository = rawImportDataRepository;
+        this.enabled = enabled;
+        this.rowsPerDocument = rowsPerDocument;
+        this.maxDocumentBytes = maxDocumentBytes;
+    }
+
+    /**
+     * Archive the data rows of a stored import file, replacing any earlier
+     * archive of the same import. Archiving is best effort: failures are
+     * logged and never fail the import itself.
+     *
+     * @param importJob The import job
+     * @param file The stored file
+     */
+    public void archive(ImportJob importJob, Path file) {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            rawImportDataRepository.deleteByImportJobId(importJob.getId());
+            BatchBuilder batches = new BatchBuilder(importJob);
+
+            if ("EXCEL".equals(FileParserUtil.getFileType(importJob.getFileName()))) {
+                ExcelStreamingParser.streamRows(file, batches::addRow);
+            } else {
+                // CSV files are archived byte for byte, without the header
+                boolean[] headerPending = {true};
+                FileParserUtil.scanRecords(file, 0, (record, length, nextOffset) -> {
+                    if (headerPending[0]) {
+                        headerPending[0] = false;
+                    } else {
+                        batches.addRecord(record, length);
+                    }
+                });
+            }
+            batches.finish();
+
+            logger.info("Archived {} rows of import {} in {} documents",
+                    batches.rowsArchived, importJob.getId(), batches.batchIndex);
+        } catch (Exception e) {
+            logger.warn("Could not archive the rows of import {}: {}", importJob.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Write the archived rows of an import as CSV text, without parsing them
+     *
+     * @param importJobId The import job ID
+     * @param out Receives the decompressed CSV text
+     * @return Number of rows written
+     * @throws IOException if writing fails
+     */
+    public long exportCsv(Long importJobId, OutputStream out) throws IOException {
+        long rows = 0;
+
+        try (Stream<RawImportData> documents = rawImportDataRepository.findByImportJobIdOrderByBatchIndexAsc(importJobId)) {
+            for (RawImportData document : (Iterable<RawImportData>) documents::iterator) {
+                try (InputStream in = open(document)) {
+                    in.transferTo(out);
+                }
+                rows += document.getRowCount();
+            }
+        }
+
+        return rows;
+    }
+
+    /**
+     * @return true if the import has archived rows
+     */
+    public boolean hasArchive(Long importJobId) {
+        return enabled && rawImportDataRepository.countByImportJobId(importJobId) > 0;
+    }
+
+    /**
+     * Remove the archive of a deleted import, best effort
+     */
+    public void delete(Long importJobId) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rawImportDataRepository.deleteByImportJobId(importJobId);
+        } catch (Exception e) {
+            logger.warn("Could not delete the archive of import {}: {}", importJobId, e.getMessage());
+        }
+    }
+
+    private static InputStream open(RawImportData document) throws IOException {
+        InputStream in = new ByteArrayInputStream(document.getPayload());
+        return "gzip".equals(document.getCompression()) ? new GZIPInputStream(in) : in;
+    }
+
+    /**
+     * Accumulates rows into compressed batch documents and saves each one
+     * as soon as it is full
+     */
+    private final class BatchBuilder {
+
+        private final ImportJob importJob;
+        private final String sourceType;
+        private final LocalDateTime importDate = LocalDateTime.now();
+
+        private ByteArrayOutputStream compressed;
+        private GZIPOutputStream gzip;
+        private int batchIndex;
+        private int batchRows;
+        private int batchBytes;
+        private long rowsArchived;
+
+        private BatchBuilder(ImportJob importJob) {
+            this.importJob = importJob;
+            this.sourceType = FileParserUtil.getFileType(importJob.getFileName());
+        }
+
+        private void addRecord(byte[] record, int length) throws IOException {
+            if (gzip == null) {
+                compressed = new ByteArrayOutputStream();
+                gzip = new GZIPOutputStream(compressed, 64 * 1024);
+            }
+            gzip.write(record, 0, length);
+            if (length > 0 && record[length - 1] != '\n') {
+                gzip.write('\n');
+            }
+
+            batchRows++;
+            batchBytes += length;
+            rowsArchived++;
+            if (batchRows >= rowsPerDocument || batchBytes >= maxDocumentBytes) {
+                saveBatch();
+            }
+        }
+
+        private void addRow(String[] values) {
+            byte[] line = toCsvLine(values).getBytes(StandardCharsets.UTF_8);
+            try {
+                addRecord(line, line.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void finish() throws IOException {
+            if (batchRows > 0) {
+                saveBatch();
+            }
+        }
+
+        private void saveBatch() throws IOException {
+            gzip.finish();
+
+            RawImportData document = new RawImportData();
+            document.setImportJobId(importJob.getId());
+            document.setFileName(importJob.getFileName());
+            document.setImportDate(importDate);
+            document.setImportedBy(importJob.getCreatedBy());
+            document.setSourceType(sourceType);
+            document.setBatchIndex(batchIndex++);
+            document.setFirstRow(rowsArchived - batchRows + 1);
+            document.setRowCount(batchRows);
+            document.setCompression("gzip");
+            document.setPayload(compressed.toByteArray());
+            rawImportDataRepository.save(document);
+
+            gzip = null;
+            compressed = null;
+            batchRows = 0;
+            batchBytes = 0;
+        }
+    }
+
+    private static String toCsvLine(String[] values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            String value = values[i] != null ? values[i] : "";
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+                line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(value);
+            }
+        }
+        return line.append('\n').toString();
+    }
+}
@@ -0,0 +1,138 @@
+package com.datainsights.portal.service.impl;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Monte Carlo simulation of a savings balance. Every path draws each
+ * month's income and expenses from a normal distribution around the
+ * projected amounts, with the user's historical monthly standard
+ * deviation, and adds the difference plus interest to its balance.
+ * <p>
+ * Balances are kept month-major in one primitive array and each month's
+ * column is sorted afterwards, so percentiles are lookups. Paths run in
+ * blocks with their own {@link SplittableRandom} split off a seeded root
+ * in block order, so a seed always gives the same result however the
+ * blocks are scheduled. Amounts are in cents.
+ */
+final class SavingsSimulation {
+
+    // Paths per parallel block; the inner loops over a block are plain array arithmetic
+    private static final int BLOCK = 1024;
+
+    private final int months;
+    private final int paths;
+    // balances[month * paths + path], each month sorted ascending
+    private final double[] balances;
+
+    private SavingsSimulation(int months, int paths, double[] balances) {
+        this.months = months;
+        this.paths = paths;
+        this.balances = balances;
+    }
+
+    /**
+     * @param pool The pool the blocks and the sorting run on
+     * @param income Projected income of each month
+     * @param expenses Projected expenses of each month, as positive amounts
+     * @param incomeStdDev Standard deviation of the monthly income
+     * @param expenseStdDev Standard deviation of the monthly expenses
+     * @param startBalance Balance before the first month
+     * @param monthlyRate Interest added to the balance every month, e.g. 0.002
+     * @param paths Number of simulated paths
+     * @param seed Seed of the random numbers
+     */
+    static SavingsSimulation run(ForkJoinPool pool, double[] income, double[] expenses,
+                                 double incomeStdDev, double expenseStdDev, double startBalance,
+                                 double monthlyRate, int paths, long seed) {
+        int months = income.length;
+        double[] balances = new double[months * paths];
+
+        int blocks = (paths + BLOCK - 1) / BLOCK;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[blocks];
+        for (int b = 0; b < blocks; b++) {
+            randoms[b] = root.split();
+        }
+
+        // Parallel streams started from inside the pool run on it instead of the common pool
+        pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(b -> {
+            int from = b * BLOCK;
+            int to = Math.min(paths, from + BLOCK);
+            simulateBlock(income, expenses, incomeStdDev, expenseStdDev, startBalance, monthlyRate,
+                    randoms[b], balances, paths, from, to);
+        })).join();
+        pool.submit(() -> IntStream.range(0, months).parallel()
+                .forEach(m -> Arrays.sort(balances, m * paths, (m + 1) * paths))).join();
+
+        return new SavingsSimulation(months, paths, balances);
+    }
+
+    private static void simulateBlock(double[] income, double[] expenses, double incomeStdDev,
+                                      double expenseStdDev, double startBalance, double monthlyRate,
+                                      SplittableRandom random, double[] balances, int paths, int from, int to) {
+        int size = to - from;
+        double[] balance = new double[size];
+        double[] incomeNoise = new double[size];
+        double[] expenseNoise = new double[size];
+        Arrays.fill(balance, startBalance);
+        double growth = 1 + monthlyRate;
+
+        for (int m = 0; m < income.length; m++) {
+            for (int p = 0; p < size; p++) {
+                incomeNoise[p] = random.nextGaussian();
+                expenseNoise[p] = random.nextGaussian();
+            }
+
+            double meanIncome = income[m];
+            double meanExpenses = expenses[m];
+            int offset = m * paths + from;
+            for (int p = 0; p < size; p++) {
+                double in = Math.max(0, meanIncome + incomeStdDev * incomeNoise[p]);
+                double out = Math.max(0, meanExpenses + expenseStdDev * expenseNoise[p]);
+                balance[p] = balance[p] * growth + in - out;
+                balances[offset + p] = balance[p];
+            }
+        }
+    }
+
+    int getMonths() {
+        return months;
+    }
+
+    int getPaths() {
+        return paths;
+    }
+
+    /**
+     * @param month 0 for the first simulated month
+     * @param percentile Between 0 and 1, e.g. 0.9 for p90; values outside are clamped
+     * @return The balance that share of the paths stay at or below at the end of a month
+     */
+    double percentile(int month, double percentile) {
+        int rank = (int) Math.round(Math.min(1, Math.max(0, percentile)) * (paths - 1));
+        return balances[month * paths + rank];
+    }
+
+    /**
+     * @return Share of the paths, between 0 and 1, with at least this balance
+     * at the end of a month
+     */
+    double shareAtLeast(int month, double amount) {
+        int low = month * paths;
+        int high = low + paths;
+        int end = high;
+        // First balance >= amount
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (balances[mid] < amount) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return (double) (end - low) / paths;
+    }
+}
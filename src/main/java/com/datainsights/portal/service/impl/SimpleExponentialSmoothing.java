@@ -0,0 +1,72 @@
+package com.datainsights.portal.service.impl;
+
+import java.util.Arrays;
+
+/**
+ * Simple exponential smoothing: a level that follows the series, with no
+ * trend or seasonality. Forecasts are flat. Works from a single month.
+ */
+final class SimpleExponentialSmoothing implements ForecastModel {
+
+    /**
+     * Months used to initialise the level; errors can be scored from here on
+     */
+    static final int INIT_LENGTH = 1;
+
+    private final double alpha;
+    private final double level;
+    private final double error;
+
+    private SimpleExponentialSmoothing(double alpha, double level, double error) {
+        this.alpha = alpha;
+        this.level = level;
+        this.error = error;
+    }
+
+    /**
+     * Fit the smoothing factor by grid search on the one-step-ahead error
+     *
+     * @param scoreFrom First month whose error is scored, at least {@link #INIT_LENGTH}
+     * @return The fitted model, or null for an empty series
+     */
+    static SimpleExponentialSmoothing fit(double[] series, int scoreFrom) {
+        if (series.length == 0) {
+            return null;
+        }
+
+        SimpleExponentialSmoothing best = null;
+        for (double alpha : SMOOTHING_FACTORS) {
+            double level = series[0];
+            double squared = 0;
+            for (int t = INIT_LENGTH; t < series.length; t++) {
+                double residual = series[t] - level;
+                if (t >= scoreFrom) {
+                    squared += residual * residual;
+                }
+                level += alpha * residual;
+            }
+            double error = series.length > scoreFrom ? squared / (series.length - scoreFrom) : 0;
+            if (best == null || error < best.error) {
+                best = new SimpleExponentialSmoothing(alpha, level, error);
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public double[] forecast(int horizon) {
+        double[] forecast = new double[horizon];
+        Arrays.fill(forecast, level);
+        return forecast;
+    }
+
+    @Override
+    public double getError() {
+        return error;
+    }
+
+    @Override
+    public String getName() {
+        return "ses(alpha=" + alpha + ")";
+    }
+}
@@ -0,0 +1,159 @@
+package com.datainsights.portal.service.impl;
+
+import com.datainsights.portal.repository.TransactionRepository;
+import com.datainsights.portal.service.TransactionColumnStore;
+import com.datainsights.portal.util.UserTransactionColumns;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory {@link UserTransactionColumns} of active users, so health
+ * requests stop reading a user's whole history from the database every
+ * time.
+ * <p>
+ * Single transaction writes are applied to the cached columns once they
+ * commit; imports evict the user instead. A load that may already have
+ * read a write's row is never patched with it: every load takes a sequence
+ * number when it starts, and a write that saw a load of the user in flight,
+ * or finds an entry loaded after it was registered, evicts the entry
+ * instead of patching it. Entries are bounded by an approximate byte budget
+ * and expire after a while, which also picks up rows changed outside the
+ * application. With the store disabled every call loads the columns from
+ * the database.
+ */
+@Component
+public class TransactionColumnStoreImpl implements TransactionColumnStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionColumnStoreImpl.class);
+
+    private static final String CACHE_NAME = "transactionColumns";
+
+    private final TransactionRepository transactionRepository;
+    private final boolean enabled;
+    private final Cache<Long, Entry> columns;
+    private final AtomicLong loadSequence = new AtomicLong();
+    // Number of loads in flight per user
+    private final ConcurrentMap<Long, Integer> loading = new ConcurrentHashMap<>();
+
+    public TransactionColumnStoreImpl(TransactionRepository transactionRepository,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${transactions.column-store.enabled:false}") boolean enabled,
+                                      @Value("${transactions.column-store.max-bytes:67108864}") long maxBytes,
+                                      @Value("${transactions.column-store.ttl-seconds:900}") long ttlSeconds) {
+        this.transactionRepository = transactionRepository;
+        this.enabled = enabled;
+
+        // Weighed in bytes; over budget Caffeine evicts the users that were used least recently and least often
+        this.columns = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long userId, Entry e) -> (int) Math.min(e.columns().bytes(), Integer.MAX_VALUE))
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, columns, CACHE_NAME);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public UserTransactionColumns get(Long userId) {
+        if (userId == null) {
+            return UserTransactionColumns.EMPTY;
+        }
+        return enabled ? columns.get(userId, this::loadEntry).columns() : load(userId);
+    }
+
+    @Override
+    public void transactionAdded(Long userId, LocalDate date, BigDecimal amount, String category) {
+        if (userId != null && date != null && amount != null) {
+            afterCommit(userId, c -> c.withAdded(date, amount, category));
+        }
+    }
+
+    @Override
+    public void transactionRemoved(Long userId, LocalDate date, BigDecimal amount, String category) {
+        if (userId != null && date != null && amount != null) {
+            afterCommit(userId, c -> c.withRemoved(date, amount, category));
+        }
+    }
+
+    @Override
+    public void evict(Long userId) {
+        if (userId != null) {
+            columns.invalidate(userId);
+        }
+    }
+
+    private Entry loadEntry(Long userId) {
+        loading.merge(userId, 1, Integer::sum);
+        try {
+            long sequence = loadSequence.incrementAndGet();
+            return new Entry(load(userId), sequence);
+        } finally {
+            loading.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private UserTransactionColumns load(Long userId) {
+        long start = System.currentTimeMillis();
+        UserTransactionColumns loaded = UserTransactionColumns.of(transactionRepository.findColumnsByCreatedBy(userId));
+        logger.debug("Loaded {} transactions of user {} as columns in {} ms",
+                loaded.size(), userId, System.currentTimeMillis() - start);
+        return loaded;
+    }
+
+    /**
+     * Apply a change to the cached columns of a user once the current
+     * database transaction commits. Runs while the write is still
+     * uncommitted, so any load that can see the row either is in flight now
+     * or starts later.
+     */
+    private void afterCommit(Long userId, UnaryOperator<UserTransactionColumns> change) {
+        if (!enabled) {
+            return;
+        }
+
+        long registeredAt = loadSequence.get();
+        boolean loadInFlight = loading.containsKey(userId);
+        Runnable apply = () -> columns.asMap().computeIfPresent(userId, (id, entry) ->
+                loadInFlight || entry.loadSequence() > registeredAt
+                        ? null
+                        : new Entry(change.apply(entry.columns()), entry.loadSequence()));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    /**
+     * Cached columns and the sequence number of the load that read them
+     */
+    private record Entry(UserTransactionColumns columns, long loadSequence) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.datainsights.portal.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dictionary encoding for category names.
+ * Each distinct name gets a dense int id; looking up a name that has been
+ * seen before works directly on the raw bytes and does not allocate.
+ */
+public class CategoryDictionary {
+
+    private static final int EMPTY = -1;
+
+    private final List<String> names = new ArrayList<>();
+    private final List<byte[]> keys = new ArrayList<>();
+    private int[] slots = new int[64];
+
+    public CategoryDictionary() {
+        Arrays.fill(slots, EMPTY);
+    }
+
+    /**
+     * Get the id of the category stored in buf[from, to), adding it if new
+     */
+    public int idOf(ByteBuffer buf, int from, int to) {
+        int hash = hash(buf, from, to);
+        int mask = slots.length - 1;
+
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot];
+            if (id == EMPTY) {
+                byte[] key = new byte[to - from];
+                buf.get(from, key);
+                return add(key, new String(key, StandardCharsets.UTF_8), slot);
+            }
+            if (matches(keys.get(id), buf, from, to)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Get the id of a category name, adding it if new
+     */
+    public int idOf(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        return idOf(ByteBuffer.wrap(key), 0, key.length);
+    }
+
+    /**
+     * @return The category name for an id
+     */
+    public String nameOf(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * @return Number of distinct categories
+     */
+    public int size() {
+        return names.size();
+    }
+
+    private int add(byte[] key, String name, int slot) {
+        int id = names.size();
+        names.add(name);
+        keys.add(key);
+        slots[slot] = id;
+
+        // Keep the table at most half full
+        if (names.size() * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        Arrays.fill(slots, EMPTY);
+        int mask = slots.length - 1;
+
+        for (int id = 0; id < keys.size(); id++) {
+            byte[] key = keys.get(id);
+            int slot = hash(ByteBuffer.wrap(key), 0, key.length) & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+        }
+    }
+
+    private static int hash(ByteBuffer buf, int from, int to) {
+        int h = 1;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + buf.get(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(byte[] key, ByteBuffer buf, int from, int to) {
+        if (key.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != buf.get(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,200 @@
+package com.datainsights.portal.util;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streaming reader for .xlsx workbooks built on the POI event (SAX) API.
+ * Only the current row is materialized, so the heap needed does not grow
+ * with the size of the sheet the way it does with XSSFWorkbook.
+ */
+public class ExcelStreamingParser {
+
+    /**
+     * Columns read per row: date, amount, description, category, account, type
+     */
+    private static final int MAX_COLUMNS = 6;
+
+    /**
+     * Stream financial data from the first sheet of an .xlsx workbook.
+     * The first row is treated as the header, the columns are the same as
+     * for CSV imports, and the day order of text dates is detected from the
+     * first rows the same way.
+     *
+     * @param file The stored workbook
+     * @param rowHandler Receives every parsed row and every rejected row
+     * @return Number of rows that were rejected because they could not be parsed
+     * @throws IOException if the workbook cannot be read
+     */
+    public static int streamFinancialData(Path file, ImportRowHandler rowHandler) throws IOException {
+        SampledRowMapper mapper = new SampledRowMapper(rowHandler);
+        streamRows(file, mapper);
+        mapper.finish();
+        return mapper.rejected;
+    }
+
+    /**
+     * Stream the cell values of the first sheet of an .xlsx workbook, one
+     * row at a time. The header row and blank rows are skipped.
+     *
+     * @param file The stored workbook
+     * @param rowConsumer Receives the values of every data row
+     * @throws IOException if the workbook cannot be read
+     */
+    public static void streamRows(Path file, Consumer<String[]> rowConsumer) throws IOException {
+        if (file.getFileName().toString().toLowerCase().endsWith(".xls")) {
+            throw new IOException("Legacy .xls workbooks are not supported, please save the file as .xlsx or .csv");
+        }
+
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        styles, null, strings, new RowCollector(rowConsumer), new RawValueFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Could not read workbook: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Holds back the first rows until the date format of the sheet is
+     * known, then maps every row
+     */
+    private static final class SampledRowMapper implements Consumer<String[]> {
+
+        private final ImportRowHandler rowHandler;
+        private List<String[]> sample = new ArrayList<>(FileParserUtil.DATE_SAMPLE_ROWS);
+        private boolean dayFirst;
+        private int rejected;
+
+        private SampledRowMapper(ImportRowHandler rowHandler) {
+            this.rowHandler = rowHandler;
+        }
+
+        @Override
+        public void accept(String[] values) {
+            if (sample == null) {
+                rejected += FileParserUtil.mapRow(values, dayFirst, rowHandler);
+                return;
+            }
+            sample.add(values);
+            if (sample.size() == FileParserUtil.DATE_SAMPLE_ROWS) {
+                finish();
+            }
+        }
+
+        /**
+         * Map the rows still held back, for sheets shorter than the sample
+         */
+        private void finish() {
+            if (sample == null) {
+                return;
+            }
+            List<String[]> rows = sample;
+            sample = null;
+            dayFirst = FileParserUtil.isDayFirst(rows);
+            for (String[] row : rows) {
+                rejected += FileParserUtil.mapRow(row, dayFirst, rowHandler);
+            }
+        }
+    }
+
+    /**
+     * Collects the cells of one row and hands the values to the row consumer
+     */
+    private static final class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final Consumer<String[]> rowConsumer;
+        private final String[] cells = new String[MAX_COLUMNS];
+
+        private boolean headerSeen;
+        private int lastColumn;
+        private int nextColumn;
+
+        private RowCollector(Consumer<String[]> rowConsumer) {
+            this.rowConsumer = rowConsumer;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            Arrays.fill(cells, "");
+            lastColumn = -1;
+            nextColumn = 0;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // Empty cells are not reported, so take the column from the reference
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            nextColumn = column + 1;
+
+            if (column < MAX_COLUMNS && formattedValue != null) {
+                cells[column] = formattedValue;
+                lastColumn = Math.max(lastColumn, column);
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (!headerSeen) {
+                headerSeen = true;
+                return;
+            }
+            if (lastColumn < 0) {
+                return; // Skip blank rows
+            }
+
+            rowConsumer.accept(Arrays.copyOf(cells, lastColumn + 1));
+        }
+    }
+
+    /**
+     * Formats numeric cells the way the row mapping expects them: dates as
+     * ISO yyyy-MM-dd and all other numbers as plain values without currency
+     * symbols or grouping, whatever the display format in the workbook is.
+     */
+    private static final class RawValueFormatter extends DataFormatter {
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return DateUtil.getLocalDateTime(value, use1904Windowing).toLocalDate().toString();
+            }
+            return NumberToTextConverter.toText(value);
+        }
+    }
+}
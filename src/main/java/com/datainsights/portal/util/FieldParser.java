@@ -0,0 +1,299 @@
+package com.datainsights.portal.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses dates and amounts straight from raw bytes or character ranges
+ * without creating Strings, BigDecimals, formatters or exceptions. Invalid
+ * input is reported through sentinel return values.
+ */
+public final class FieldParser {
+
+    /**
+     * Returned by {@link #parseCents} when the field is not a valid amount
+     */
+    public static final long INVALID_AMOUNT = Long.MIN_VALUE;
+
+    /**
+     * Returned by {@link #parseEpochDay} when the field is not a valid date
+     */
+    public static final int INVALID_DATE = Integer.MIN_VALUE;
+
+    /**
+     * Longest field kept in the scratch buffer before it is grown
+     */
+    private static final int SCRATCH_SIZE = 64;
+
+    // Fields are copied here and parsed by one implementation for bytes and characters
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
+
+    private FieldParser() {
+    }
+
+    /**
+     * Parse an amount such as -1,234.56, $12.5 or (40.00) into cents.
+     * Digits beyond the second decimal are rounded half up.
+     *
+     * @return The amount in cents, or {@link #INVALID_AMOUNT}
+     */
+    public static long parseCents(ByteBuffer buf, int from, int to) {
+        byte[] field = copy(buf, from, to);
+        return parseCents(field, 0, to - from);
+    }
+
+    /**
+     * Parse a date in yyyy-MM-dd, MM/dd/yyyy or dd/MM/yyyy form into an epoch
+     * day, same rules as {@link #parseEpochDay(CharSequence, int, int, boolean)}
+     *
+     * @param dayFirst true for dd/MM/yyyy files, false for MM/dd/yyyy files
+     * @return The epoch day, or {@link #INVALID_DATE}
+     */
+    public static int parseEpochDay(ByteBuffer buf, int from, int to, boolean dayFirst) {
+        byte[] field = copy(buf, from, to);
+        return parseEpochDay(field, 0, to - from, dayFirst);
+    }
+
+    /**
+     * Parse an amount held in a character range into cents, same rules as
+     * {@link #parseCents(ByteBuffer, int, int)}
+     *
+     * @return The amount in cents, or {@link #INVALID_AMOUNT}
+     */
+    public static long parseCents(CharSequence text, int from, int to) {
+        byte[] field = copy(text, from, to);
+        return parseCents(field, 0, to - from);
+    }
+
+    /**
+     * Parse a date held in a character range into an epoch day.
+     * ISO dates are recognized by their shape; for slash dates the given
+     * day order is tried first and the other order only if the first one
+     * does not give a valid date.
+     *
+     * @param dayFirst true for dd/MM/yyyy files, false for MM/dd/yyyy files
+     * @return The epoch day, or {@link #INVALID_DATE}
+     */
+    public static int parseEpochDay(CharSequence text, int from, int to, boolean dayFirst) {
+        byte[] field = copy(text, from, to);
+        return parseEpochDay(field, 0, to - from, dayFirst);
+    }
+
+    /**
+     * Whether a character is padding around a field value: whitespace,
+     * control characters (including a trailing \r) and quotes
+     */
+    public static boolean isPadding(int c) {
+        return c <= ' ' || c == '"';
+    }
+
+    /**
+     * Copy a byte range into this thread's scratch buffer
+     */
+    private static byte[] copy(ByteBuffer buf, int from, int to) {
+        byte[] field = scratch(to - from);
+        buf.get(from, field, 0, to - from);
+        return field;
+    }
+
+    /**
+     * Copy a character range into this thread's scratch buffer. Characters
+     * beyond Latin-1 become 0xFF, which like every non-ASCII byte is
+     * neither padding nor part of a number or date.
+     */
+    private static byte[] copy(CharSequence text, int from, int to) {
+        byte[] field = scratch(to - from);
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            field[i - from] = (byte) (c <= 0xFF ? c : 0xFF);
+        }
+        return field;
+    }
+
+    private static byte[] scratch(int length) {
+        byte[] field = SCRATCH.get();
+        if (field.length < length) {
+            field = new byte[Math.max(length, field.length * 2)];
+            SCRATCH.set(field);
+        }
+        return field;
+    }
+
+    private static long parseCents(byte[] field, int from, int to) {
+        int i = skipPadding(field, from, to);
+        to = trimPadding(field, i, to);
+
+        boolean negative = false;
+        if (i < to && field[i] == '(' && field[to - 1] == ')') {
+            negative = true;
+            i++;
+            to--;
+        }
+        if (i < to && (field[i] == '-' || field[i] == '+')) {
+            negative |= field[i] == '-';
+            i++;
+        }
+        if (i < to && field[i] == '$') {
+            i++;
+            if (i < to && field[i] == '-') {
+                negative = true;
+                i++;
+            }
+        }
+
+        long units = 0;
+        int digits = 0;
+        int decimals = -1; // -1 until the decimal point has been seen
+        boolean roundUp = false;
+
+        for (; i < to; i++) {
+            byte c = field[i];
+            if (c >= '0' && c <= '9') {
+                if (decimals < 0) {
+                    if (++digits > 16) {
+                        return INVALID_AMOUNT;
+                    }
+                    units = units * 10 + (c - '0');
+                } else if (decimals < 2) {
+                    units = units * 10 + (c - '0');
+                    decimals++;
+                } else if (decimals == 2) {
+                    roundUp = c >= '5';
+                    decimals++;
+                }
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (c != ',' || decimals >= 0) {
+                return INVALID_AMOUNT;
+            }
+        }
+
+        if (digits == 0 && decimals <= 0) {
+            return INVALID_AMOUNT;
+        }
+        for (int d = Math.max(decimals, 0); d < 2; d++) {
+            units *= 10;
+        }
+        if (roundUp) {
+            units++;
+        }
+        return negative ? -units : units;
+    }
+
+    private static int parseEpochDay(byte[] field, int from, int to, boolean dayFirst) {
+        int i = skipPadding(field, from, to);
+        to = trimPadding(field, i, to);
+
+        if (to - i == 10 && field[i + 4] == '-' && field[i + 7] == '-') {
+            return epochDay(digits(field, i, 4), digits(field, i + 5, 2), digits(field, i + 8, 2));
+        }
+        if (to - i == 10 && field[i + 2] == '/' && field[i + 5] == '/') {
+            int first = digits(field, i, 2);
+            int second = digits(field, i + 3, 2);
+            int year = digits(field, i + 6, 4);
+            int day = dayFirst ? epochDay(year, second, first) : epochDay(year, first, second);
+            if (day == INVALID_DATE) {
+                day = dayFirst ? epochDay(year, first, second) : epochDay(year, second, first);
+            }
+            return day;
+        }
+        return INVALID_DATE;
+    }
+
+    /**
+     * Decide the day order of slash dates from a sample of date values.
+     * A sample is only conclusive when its first part cannot be a month.
+     *
+     * @return true if the sample shows dd/MM/yyyy dates, false for MM/dd/yyyy
+     */
+    public static boolean isDayFirst(Iterable<? extends CharSequence> sampleDates) {
+        for (CharSequence text : sampleDates) {
+            byte[] field = copy(text, 0, text.length());
+            int i = skipPadding(field, 0, text.length());
+            int to = trimPadding(field, i, text.length());
+            if (to - i == 10 && field[i + 2] == '/' && field[i + 5] == '/') {
+                int first = digits(field, i, 2);
+                int second = digits(field, i + 3, 2);
+                if (first > 12) {
+                    return true;
+                }
+                if (second > 12) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Days since 1970-01-01 for a calendar date, without creating a LocalDate
+     *
+     * @return The epoch day, or {@link #INVALID_DATE} if the date does not exist
+     */
+    public static int epochDay(int year, int month, int day) {
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return INVALID_DATE;
+        }
+
+        // Same arithmetic as LocalDate.toEpochDay
+        long y = year;
+        long total = 365 * y;
+        total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return (int) (total - 719528);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * Read a fixed number of ASCII digits, or -1 if any character is not a digit
+     */
+    private static int digits(byte[] field, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int d = field[i] - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    // Bytes are compared unsigned so non-ASCII bytes never count as padding
+    private static int skipPadding(byte[] field, int from, int to) {
+        while (from < to && isPadding(field[from] & 0xFF)) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimPadding(byte[] field, int from, int to) {
+        while (to > from && isPadding(field[to - 1] & 0xFF)) {
+            to--;
+        }
+        return to;
+    }
+}
@@ -1,18 +1,28 @@
 package com.datainsights.portal.util;
 
 import com.datainsights.portal.model.FinancialData;
+import com.opencsv.CSVParser;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.exceptions.CsvValidationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class FileParserUtil {
@@ -20,68 +30,262 @@ public class FileParserUtil {
     private static final Logger logger = LoggerFactory.getLogger(FileParserUtil.class);
 
     /**
-     * Parse financial data from a CSV or Excel file
+     * Number of leading rows used to detect the date format of a file
+     */
+    static final int DATE_SAMPLE_ROWS = 100;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Parse financial data from a CSV file
      *
      * @param file The uploaded file
      * @return List of financial data records
      * @throws IOException if file reading fails
      */
     public static List<FinancialData> parseFinancialDataFile(MultipartFile file) throws IOException {
-        // Simple implementation for now - just extract CSV data
         List<FinancialData> dataList = new ArrayList<>();
+        streamFinancialData(file.getInputStream(), dataList::add);
+        return dataList;
+    }
 
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
-            // Skip header line
-            String line = reader.readLine();
+    /**
+     * Stream financial data from a CSV input one row at a time.
+     * Rows are handed to the handler as soon as they are parsed, so nothing
+     * beyond the current row is kept in memory.
+     *
+     * @param inputStream The CSV content, header row first
+     * @param rowHandler Receives every parsed row and every rejected row
+     * @return Number of rows that were rejected because they could not be parsed
+     * @throws IOException if reading fails
+     */
+    public static int streamFinancialData(InputStream inputStream, ImportRowHandler rowHandler) throws IOException {
+        int rejected = 0;
 
-            // Read data lines
-            while ((line = reader.readLine()) != null) {
-                String[] values = line.split(",");
+        try (CSVReader reader = new CSVReaderBuilder(
+                new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)))
+                .withSkipLines(1) // Skip header line
+                .build()) {
+
+            // Hold back the first rows until the date format of the file is known
+            List<String[]> sample = new ArrayList<>(DATE_SAMPLE_ROWS);
+            String[] values;
+            while (sample.size() < DATE_SAMPLE_ROWS && (values = readNext(reader)) != null) {
+                sample.add(values);
+            }
+            boolean dayFirst = isDayFirst(sample);
 
-                if (values.length >= 2) {  // At minimum, need date and amount
-                    FinancialData data = new FinancialData();
+            for (String[] row : sample) {
+                rejected += mapRow(row, dayFirst, rowHandler);
+            }
+            while ((values = readNext(reader)) != null) {
+                rejected += mapRow(values, dayFirst, rowHandler);
+            }
+        }
 
-                    // Parse date
-                    String dateStr = values[0];
-                    data.setTransactionDate(parseDate(dateStr));
+        return rejected;
+    }
 
-                    // Parse amount
-                    String amountStr = values[1];
-                    data.setAmount(new BigDecimal(amountStr));
+    /**
+     * Stream financial data from a stored CSV file, starting at a record
+     * boundary. After every record the handler receives a checkpoint with
+     * the byte offset of the next record, so an interrupted import can be
+     * resumed from the last committed offset instead of from the start.
+     *
+     * @param file The stored CSV file, header row first
+     * @param startOffset Byte offset to start at, 0 to read the whole file
+     * @param startRow Number of data rows before startOffset
+     * @param rowHandler Receives every parsed row, every rejected row and the checkpoints
+     * @return Number of rows that were rejected because they could not be parsed
+     * @throws IOException if reading fails
+     */
+    public static int streamFinancialData(Path file, long startOffset, long startRow,
+                                          ImportRowHandler rowHandler) throws IOException {
+        RecordMapper mapper = new RecordMapper(detectDayFirst(file), startOffset == 0, startRow, rowHandler);
+        scanRecords(file, startOffset, mapper);
+        return mapper.rejected;
+    }
 
-                    // Add other fields if available
-                    if (values.length > 2) data.setDescription(values[2]);
-                    if (values.length > 3) data.setCategory(values[3]);
-                    if (values.length > 4) data.setAccountName(values[4]);
-                    if (values.length > 5) data.setTransactionType(values[5]);
+    /**
+     * Split a stored CSV file into records on the raw bytes, without
+     * decoding anything. Records end at a line break that is not inside a
+     * quoted field; the header is reported like any other record.
+     *
+     * @param file The stored CSV file
+     * @param startOffset Byte offset of a record boundary to start at
+     * @param consumer Receives every record in file order
+     * @throws IOException if reading fails
+     */
+    public static void scanRecords(Path file, long startOffset, RecordConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            byte[] record = new byte[1024];
+            int length = 0;
+            boolean inQuotes = false;
+            long position = startOffset;
 
-                    dataList.add(data);
+            while (true) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
                 }
+
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer.get(i);
+                    if (length == record.length) {
+                        record = Arrays.copyOf(record, record.length * 2);
+                    }
+                    record[length++] = b;
+
+                    if (b == '"') {
+                        inQuotes = !inQuotes;
+                    } else if (b == '\n' && !inQuotes) {
+                        consumer.onRecord(record, length, position + i + 1);
+                        length = 0;
+                    }
+                }
+                position += read;
+            }
+
+            // A last record without a trailing line break
+            if (length > 0) {
+                consumer.onRecord(record, length, position);
             }
         }
+    }
 
-        return dataList;
+    /**
+     * Receives the raw bytes of each record found by {@link #scanRecords}
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+
+        /**
+         * @param record Buffer holding the record, including its line break; only valid during the call
+         * @param length Number of bytes of the record in the buffer
+         * @param nextOffset Byte offset of the next record in the file
+         * @throws IOException if the record cannot be processed
+         */
+        void onRecord(byte[] record, int length, long nextOffset) throws IOException;
     }
 
-    private static LocalDate parseDate(String dateStr) {
-        try {
-            // Try standard ISO format (yyyy-MM-dd)
-            return LocalDate.parse(dateStr);
-        } catch (DateTimeParseException e1) {
-            try {
-                // Try MM/dd/yyyy format
-                return LocalDate.parse(dateStr, DateTimeFormatter.ofPattern("MM/dd/yyyy"));
-            } catch (DateTimeParseException e2) {
-                try {
-                    // Try dd/MM/yyyy format
-                    return LocalDate.parse(dateStr, DateTimeFormatter.ofPattern("dd/MM/yyyy"));
-                } catch (DateTimeParseException e3) {
-                    // If all else fails, use current date and log warning
-                    logger.warn("Could not parse date '{}', using current date", dateStr);
-                    return LocalDate.now();
-                }
+    /**
+     * Detect whether a stored CSV file uses dd/MM/yyyy dates from its first rows
+     *
+     * @param file The stored CSV file, header row first
+     * @return true if the file uses dd/MM/yyyy dates
+     * @throws IOException if reading fails
+     */
+    public static boolean detectDayFirst(Path file) throws IOException {
+        List<String[]> sample = new ArrayList<>(DATE_SAMPLE_ROWS);
+
+        try (CSVReader reader = new CSVReaderBuilder(Files.newBufferedReader(file, StandardCharsets.UTF_8))
+                .withSkipLines(1)
+                .build()) {
+            String[] values;
+            while (sample.size() < DATE_SAMPLE_ROWS && (values = reader.readNext()) != null) {
+                sample.add(values);
+            }
+        } catch (CsvValidationException e) {
+            // Malformed rows are reported by the real parse, the rows read so far are enough here
+        }
+
+        return isDayFirst(sample);
+    }
+
+    /**
+     * Decide whether the slash dates in a sample of rows are dd/MM/yyyy
+     * rather than MM/dd/yyyy
+     *
+     * @param sampleRows The first rows of a file
+     * @return true if the file uses dd/MM/yyyy dates
+     */
+    public static boolean isDayFirst(List<String[]> sampleRows) {
+        List<String> dates = new ArrayList<>(sampleRows.size());
+        for (String[] values : sampleRows) {
+            if (values.length > 0) {
+                dates.add(values[0]);
             }
         }
+        return FieldParser.isDayFirst(dates);
+    }
+
+    /**
+     * Map the columns of a single row (date, amount, description, category,
+     * account, type) to a financial data record.
+     *
+     * @param dayFirst Whether slash dates in this file are dd/MM/yyyy
+     * @return The record, or null if the row is blank or the amount is not a number
+     */
+    public static FinancialData mapRow(String[] values, boolean dayFirst) {
+        if (values.length < 2) {  // At minimum, need date and amount
+            return null;
+        }
+
+        long cents = FieldParser.parseCents(values[1], 0, values[1].length());
+        if (cents == FieldParser.INVALID_AMOUNT) {
+            logger.debug("Skipping row with invalid amount '{}'", values[1]);
+            return null;
+        }
+
+        FinancialData data = new FinancialData();
+        data.setTransactionDate(parseDate(values[0], dayFirst));
+        data.setAmount(BigDecimal.valueOf(cents, 2));
+
+        // Add other fields if available
+        if (values.length > 2) data.setDescription(emptyToNull(values[2]));
+        if (values.length > 3) data.setCategory(emptyToNull(values[3]));
+        if (values.length > 4) data.setAccountName(emptyToNull(values[4]));
+        if (values.length > 5) data.setTransactionType(emptyToNull(values[5]));
+
+        return data;
+    }
+
+    /**
+     * Map a row and hand it to the row handler
+     *
+     * @return 1 if the row was rejected, 0 otherwise
+     */
+    static int mapRow(String[] values, boolean dayFirst, ImportRowHandler rowHandler) {
+        FinancialData data = mapRow(values, dayFirst);
+        if (data != null) {
+            rowHandler.onRow(data);
+            return 0;
+        }
+        rowHandler.onRejectedRow(values);
+        return 1;
+    }
+
+    private static String[] parseRecord(CSVParser parser, byte[] record, int length) throws IOException {
+        // Drop the line break, the parser expects a single logical line
+        while (length > 0 && (record[length - 1] == '\n' || record[length - 1] == '\r')) {
+            length--;
+        }
+        return parser.parseLine(new String(record, 0, length, StandardCharsets.UTF_8));
+    }
+
+    private static String[] readNext(CSVReader reader) throws IOException {
+        try {
+            return reader.readNext();
+        } catch (CsvValidationException e) {
+            throw new IOException("Malformed CSV at line " + reader.getLinesRead(), e);
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static LocalDate parseDate(String dateStr, boolean dayFirst) {
+        int epochDay = FieldParser.parseEpochDay(dateStr, 0, dateStr.length(), dayFirst);
+        if (epochDay == FieldParser.INVALID_DATE) {
+            // If all else fails, use current date and log warning
+            logger.warn("Could not parse date '{}', using current date", dateStr);
+            return LocalDate.now();
+        }
+        return LocalDate.ofEpochDay(epochDay);
     }
 
     /**
@@ -97,4 +301,36 @@ public class FileParserUtil {
         }
         return "UNKNOWN";
     }
-}
\ No newline at end of file
+
+    /**
+     * Maps scanned records to rows and reports a checkpoint after each one
+     */
+    private static final class RecordMapper implements RecordConsumer {
+
+        private final CSVParser parser = new CSVParser();
+        private final boolean dayFirst;
+        private final ImportRowHandler rowHandler;
+
+        private boolean headerPending;
+        private long rowNumber;
+        private int rejected;
+
+        private RecordMapper(boolean dayFirst, boolean headerPending, long startRow, ImportRowHandler rowHandler) {
+            this.dayFirst = dayFirst;
+            this.headerPending = headerPending;
+            this.rowNumber = startRow;
+            this.rowHandler = rowHandler;
+        }
+
+        @Override
+        public void onRecord(byte[] record, int length, long nextOffset) throws IOException {
+            if (headerPending) {
+                headerPending = false;
+            } else {
+                rejected += mapRow(parseRecord(parser, record, length), dayFirst, rowHandler);
+                rowNumber++;
+            }
+            rowHandler.onCheckpoint(nextOffset, rowNumber);
+        }
+    }
+}
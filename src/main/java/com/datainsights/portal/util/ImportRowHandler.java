@@ -0,0 +1,35 @@
+package com.datainsights.portal.util;
+
+import com.datainsights.portal.model.FinancialData;
+
+/**
+ * Receives rows from the import parsers as they are read
+ */
+@FunctionalInterface
+public interface ImportRowHandler {
+
+    /**
+     * Called for every row that could be parsed
+     *
+     * @param row The parsed row
+     */
+    void onRow(FinancialData row);
+
+    /**
+     * Called for every row that had to be skipped
+     *
+     * @param values The raw column values of the rejected row
+     */
+    default void onRejectedRow(String[] values) {
+    }
+
+    /**
+     * Called by parsers that can resume a file, after every record before
+     * the given byte offset has been handed to this handler
+     *
+     * @param offset Byte offset of the next record in the file
+     * @param rowNumber Number of data rows (parsed and rejected) before that offset
+     */
+    default void onCheckpoint(long offset, long rowNumber) {
+    }
+}
@@ -0,0 +1,146 @@
+package com.datainsights.portal.util;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from an int key, such as a {@link CategoryDictionary}
+ * id, to a long sum. Keys and sums live in primitive arrays, so adding to
+ * an existing key does not allocate. Iteration follows the order in which
+ * keys were first added.
+ */
+public class LongSumMap {
+
+    private static final int EMPTY = -1;
+
+    // slot -> position in keys/sums, EMPTY if unused
+    private int[] slots = new int[16];
+    private int[] keys = new int[8];
+    private long[] sums = new long[8];
+    private int size;
+
+    public LongSumMap() {
+        Arrays.fill(slots, EMPTY);
+    }
+
+    /**
+     * Add a value to the sum of a key, starting from 0 for a new key
+     */
+    public void add(int key, long value) {
+        int mask = slots.length - 1;
+
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int index = slots[slot];
+            if (index == EMPTY) {
+                insert(key, value, slot);
+                return;
+            }
+            if (keys[index] == key) {
+                sums[index] = Math.addExact(sums[index], value);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return The sum of a key, 0 if it was never added
+     */
+    public long get(int key) {
+        int mask = slots.length - 1;
+
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int index = slots[slot];
+            if (index == EMPTY) {
+                return 0;
+            }
+            if (keys[index] == key) {
+                return sums[index];
+            }
+        }
+    }
+
+    /**
+     * @return Sum over all keys
+     */
+    public long total() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total = Math.addExact(total, sums[i]);
+        }
+        return total;
+    }
+
+    /**
+     * @return Number of distinct keys
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return The key added index-th, counting from 0
+     */
+    public int keyAt(int index) {
+        return keys[index];
+    }
+
+    /**
+     * @return The sum of the key added index-th, counting from 0
+     */
+    public long sumAt(int index) {
+        return sums[index];
+    }
+
+    /**
+     * Visit every key and its sum in the order the keys were first added
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(keys[i], sums[i]);
+        }
+    }
+
+    private void insert(int key, long value, int slot) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            sums = Arrays.copyOf(sums, size * 2);
+        }
+        keys[size] = key;
+        sums[size] = value;
+        slots[slot] = size;
+        size++;
+
+        // Keep the table at most half full
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        Arrays.fill(slots, EMPTY);
+        int mask = slots.length - 1;
+
+        for (int index = 0; index < size; index++) {
+            int slot = hash(keys[index]) & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = index;
+        }
+    }
+
+    private static int hash(int key) {
+        // Dense ids would otherwise fill neighbouring slots
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int key, long sum);
+    }
+}
@@ -0,0 +1,191 @@
+package com.datainsights.portal.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a stored CSV file through a memory mapping and tokenizes the raw
+ * bytes directly into dates, amounts and category ids.
+ * <p>
+ * No lines, Strings or row objects are created per record: fields are
+ * located by a small state machine over the mapped bytes and handed to
+ * {@link FieldParser}, and categories are dictionary encoded. This makes
+ * re-reading and validating a stored import cost close to raw disk bandwidth.
+ * The columns are the same as for regular imports (date, amount,
+ * description, category, ...), the first record is the header.
+ */
+public class MappedCsvReader {
+
+    /**
+     * Size of the region mapped at once. Large files are read through a
+     * sliding mapping so the address space used stays bounded.
+     */
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private static final int DATE_COLUMN = 0;
+    private static final int AMOUNT_COLUMN = 1;
+    private static final int CATEGORY_COLUMN = 3;
+
+    /**
+     * Receives the tokenized records in file order
+     */
+    public interface RecordVisitor {
+
+        /**
+         * @param rowNumber 1-based data row number (the header is not counted)
+         * @param epochDay The date as epoch day, or {@link FieldParser#INVALID_DATE}
+         * @param cents The amount in cents
+         * @param categoryId The category id in the dictionary, or -1 if the row has no category
+         */
+        void onRecord(long rowNumber, int epochDay, long cents, int categoryId);
+
+        /**
+         * Called for rows that a regular import would reject (blank rows,
+         * missing or invalid amount)
+         */
+        default void onInvalidRecord(long rowNumber) {
+        }
+    }
+
+    /**
+     * Read a stored CSV file
+     *
+     * @param file The stored CSV file, header row first
+     * @param categories Dictionary the category names are encoded with
+     * @param dayFirst true for dd/MM/yyyy files, see {@link FileParserUtil#detectDayFirst}
+     * @param visitor Receives every record
+     * @return Number of bytes read
+     * @throws IOException if reading fails or a single record is larger than the mapping window
+     */
+    public static long read(Path file, CategoryDictionary categories, boolean dayFirst,
+                            RecordVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Tokenizer tokenizer = new Tokenizer(categories, dayFirst, visitor);
+            long position = 0;
+
+            while (position < size) {
+                long length = Math.min(WINDOW_SIZE, size - position);
+                boolean last = position + length == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                // Only complete records are consumed, the next window starts at the first incomplete one
+                int consumed = tokenizer.tokenize(window, (int) length, last);
+                if (consumed == 0 && !last) {
+                    throw new IOException("Record at byte " + position + " is larger than "
+                            + WINDOW_SIZE + " bytes");
+                }
+                position += consumed;
+            }
+            return size;
+        }
+    }
+
+    private static final class Tokenizer {
+
+        private final CategoryDictionary categories;
+        private final boolean dayFirst;
+        private final RecordVisitor visitor;
+        private final int[] fieldStart = new int[CATEGORY_COLUMN + 1];
+        private final int[] fieldEnd = new int[CATEGORY_COLUMN + 1];
+
+        private boolean headerSeen;
+        private long rowNumber;
+
+        private Tokenizer(CategoryDictionary categories, boolean dayFirst, RecordVisitor visitor) {
+            this.categories = categories;
+            this.dayFirst = dayFirst;
+            this.visitor = visitor;
+        }
+
+        /**
+         * Tokenize the complete records of a window
+         *
+         * @return Number of bytes consumed, i.e. the end of the last complete record
+         */
+        private int tokenize(MappedByteBuffer buf, int length, boolean last) {
+            int recordStart = 0;
+            int fieldFrom = 0;
+            int field = 0;
+            boolean inQuotes = false;
+
+            for (int i = 0; i < length; i++) {
+                byte b = buf.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (!inQuotes && (b == ',' || b == '\n')) {
+                    endField(field++, fieldFrom, i);
+                    fieldFrom = i + 1;
+                    if (b == '\n') {
+                        endRecord(buf, field, recordStart, i);
+                        recordStart = i + 1;
+                        field = 0;
+                    }
+                }
+            }
+
+            // A last record without a trailing line break
+            if (last && recordStart < length) {
+                endField(field++, fieldFrom, length);
+                endRecord(buf, field, recordStart, length);
+                recordStart = length;
+            }
+            return recordStart;
+        }
+
+        private void endField(int field, int from, int to) {
+            if (field < fieldStart.length) {
+                fieldStart[field] = from;
+                fieldEnd[field] = to;
+            }
+        }
+
+        private void endRecord(MappedByteBuffer buf, int fields, int recordStart, int recordEnd) {
+            if (!headerSeen) {
+                headerSeen = true;
+                return;
+            }
+            rowNumber++;
+
+            if (fields <= AMOUNT_COLUMN || isBlank(buf, recordStart, recordEnd)) {
+                visitor.onInvalidRecord(rowNumber);
+                return;
+            }
+
+            long cents = FieldParser.parseCents(buf, fieldStart[AMOUNT_COLUMN], fieldEnd[AMOUNT_COLUMN]);
+            if (cents == FieldParser.INVALID_AMOUNT) {
+                visitor.onInvalidRecord(rowNumber);
+                return;
+            }
+
+            int epochDay = FieldParser.parseEpochDay(buf, fieldStart[DATE_COLUMN], fieldEnd[DATE_COLUMN], dayFirst);
+            int categoryId = fields > CATEGORY_COLUMN ? category(buf) : -1;
+            visitor.onRecord(rowNumber, epochDay, cents, categoryId);
+        }
+
+        private int category(MappedByteBuffer buf) {
+            int from = fieldStart[CATEGORY_COLUMN];
+            int to = fieldEnd[CATEGORY_COLUMN];
+            while (from < to && FieldParser.isPadding(buf.get(from) & 0xFF)) {
+                from++;
+            }
+            while (to > from && FieldParser.isPadding(buf.get(to - 1) & 0xFF)) {
+                to--;
+            }
+            return from < to ? categories.idOf(buf, from, to) : -1;
+        }
+
+        private static boolean isBlank(MappedByteBuffer buf, int from, int to) {
+            for (int i = from; i < to; i++) {
+                byte b = buf.get(i);
+                if (b != ' ' && b != '\r' && b != '\n') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
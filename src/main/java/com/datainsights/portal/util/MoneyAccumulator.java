@@ -0,0 +1,60 @@
+package com.datainsights.portal.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Running total of money amounts held as a long number of cents.
+ * Adding cents does not allocate, unlike BigDecimal.add; amounts are
+ * converted back to BigDecimal with scale 2 only when they are returned.
+ * Sums read from the database should be selected in cents rather than
+ * converted here, see {@link com.datainsights.portal.repository.DatabaseDialect#inCents}.
+ */
+public class MoneyAccumulator {
+
+    private long cents;
+
+    /**
+     * Add an amount. Digits beyond the second decimal are rounded half up,
+     * the same as the money columns of the database.
+     */
+    public MoneyAccumulator add(BigDecimal amount) {
+        return addCents(toCents(amount));
+    }
+
+    public MoneyAccumulator addCents(long value) {
+        cents = Math.addExact(cents, value);
+        return this;
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return toBigDecimal(cents);
+    }
+
+    /**
+     * Amounts with at most two decimals and 15 digits, which covers the
+     * money columns, are converted through double without allocating: the
+     * double is within a small fraction of a cent, so rounding it is exact.
+     * Anything else is rounded half up through BigDecimal.
+     *
+     * @return The amount in cents
+     * @throws ArithmeticException if the amount does not fit in a long
+     */
+    public static long toCents(BigDecimal amount) {
+        if (amount.scale() >= 0 && amount.scale() <= 2 && amount.precision() <= 15) {
+            return Math.round(amount.doubleValue() * 100);
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * @return The exact amount of a number of cents, with scale 2
+     */
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
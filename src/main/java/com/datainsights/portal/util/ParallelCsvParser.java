@@ -0,0 +1,206 @@
+package com.datainsights.portal.util;
+
+import com.datainsights.portal.model.FinancialData;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses a stored CSV file on several cores.
+ * <p>
+ * The file is first split into byte ranges that end on a record boundary;
+ * this scan only looks at raw bytes (line breaks and quotes), so it runs at
+ * close to disk speed. The ranges are then decoded and parsed in parallel on
+ * the given pool, and the rows are handed to the row handler strictly in
+ * file order on the calling thread. Only a sliding window of chunks is in
+ * flight at any time. The window is bounded by the raw bytes of the chunks
+ * it holds rather than by the core count, because every chunk is fully
+ * materialized as records and rows until the writer has drained it.
+ * <p>
+ * A checkpoint is reported at the end of every chunk, so an interrupted
+ * import can be resumed from the last chunk boundary it committed.
+ */
+public class ParallelCsvParser {
+
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Parse a stored CSV file in parallel
+     *
+     * @param file The stored CSV file, header row first
+     * @param pool The pool the chunks are parsed on
+     * @param chunkSize Approximate size of a chunk in bytes
+     * @param maxInFlightBytes Raw bytes of the chunks submitted but not yet merged; at least one chunk is always in flight
+     * @param startOffset Byte offset of a record boundary to start at, 0 to read the whole file
+     * @param startRow Number of data rows before startOffset
+     * @param rowHandler Receives every parsed row, every rejected row and the checkpoints, in file order
+     * @return Number of rows that were rejected because they could not be parsed
+     * @throws IOException if reading fails
+     */
+    public static int streamFinancialData(Path file, ForkJoinPool pool, int chunkSize, long maxInFlightBytes,
+                                          long startOffset, long startRow, ImportRowHandler rowHandler)
+            throws IOException {
+        boolean dayFirst = FileParserUtil.detectDayFirst(file);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> chunks = splitIntoChunks(channel, chunkSize, startOffset);
+
+            // More chunks than twice the workers would only queue up
+            int maxChunks = Math.max(1, pool.getParallelism() * 2);
+            Deque<ForkJoinTask<ChunkResult>> inFlight = new ArrayDeque<>(maxChunks);
+            long inFlightBytes = 0;
+            int nextChunk = 0;
+            int merged = 0;
+            int rejected = 0;
+            long rowNumber = startRow;
+
+            try {
+                while (nextChunk < chunks.size() || !inFlight.isEmpty()) {
+                    // Keep the window full, within the byte budget
+                    while (nextChunk < chunks.size() && inFlight.size() < maxChunks
+                            && (inFlight.isEmpty() || inFlightBytes + length(chunks.get(nextChunk)) <= maxInFlightBytes)) {
+                        long[] range = chunks.get(nextChunk++);
+                        inFlightBytes += length(range);
+                        inFlight.addLast(pool.submit(() -> parseChunk(channel, range[0], range[1], dayFirst)));
+                    }
+
+                    // Merge the oldest chunk, in order
+                    ChunkResult result = await(inFlight.removeFirst());
+                    inFlightBytes -= length(chunks.get(merged));
+                    for (int i = 0; i < result.records.size(); i++) {
+                        FinancialData row = result.rows.get(i);
+                        if (row != null) {
+                            rowHandler.onRow(row);
+                        } else {
+                            rowHandler.onRejectedRow(result.records.get(i));
+                            rejected++;
+                        }
+                    }
+                    rowNumber += result.records.size();
+                    rowHandler.onCheckpoint(chunks.get(merged++)[1], rowNumber);
+                }
+            } finally {
+                // Don't leave work behind if the handler or a chunk failed
+                inFlight.forEach(task -> task.cancel(true));
+            }
+
+            return rejected;
+        }
+    }
+
+    /**
+     * Split the file (after the header record, or from startOffset when
+     * resuming) into [start, end) byte ranges of roughly chunkSize bytes,
+     * each ending right after a line break that is not inside a quoted field.
+     */
+    static List<long[]> splitIntoChunks(FileChannel channel, int chunkSize, long startOffset) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+
+        boolean inQuotes = false;
+        long chunkStart = startOffset > 0 ? startOffset : -1; // -1 until the header record has been skipped
+        long position = Math.max(startOffset, 0);
+
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    long recordEnd = position + i + 1;
+                    if (chunkStart < 0) {
+                        chunkStart = recordEnd;
+                    } else if (recordEnd - chunkStart >= chunkSize) {
+                        chunks.add(new long[]{chunkStart, recordEnd});
+                        chunkStart = recordEnd;
+                    }
+                }
+            }
+            position += read;
+        }
+
+        if (chunkStart >= 0 && chunkStart < size) {
+            chunks.add(new long[]{chunkStart, size});
+        }
+        return chunks;
+    }
+
+    private static long length(long[] range) {
+        return range[1] - range[0];
+    }
+
+    private static String readText(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, start + bytes.position()) < 0) {
+                break;
+            }
+        }
+        return new String(bytes.array(), 0, bytes.position(), StandardCharsets.UTF_8);
+    }
+
+    private static ChunkResult parseChunk(FileChannel channel, long start, long end, boolean dayFirst) {
+        ChunkResult result = new ChunkResult();
+
+        try {
+            String text = readText(channel, start, end);
+
+            try (CSVReader reader = new CSVReader(new StringReader(text))) {
+                String[] values;
+                while ((values = reader.readNext()) != null) {
+                    // Rejected rows keep their place, with no mapped row
+                    result.records.add(values);
+                    result.rows.add(FileParserUtil.mapRow(values, dayFirst));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (CsvValidationException e) {
+            throw new UncheckedIOException(new IOException("Malformed CSV in bytes " + start + "-" + end, e));
+        }
+
+        return result;
+    }
+
+    private static ChunkResult await(ForkJoinTask<ChunkResult> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException("Error parsing chunk: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static final class ChunkResult {
+        private final List<String[]> records = new ArrayList<>();
+        private final List<FinancialData> rows = new ArrayList<>();
+    }
+}
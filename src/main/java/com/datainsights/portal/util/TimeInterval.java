@@ -0,0 +1,120 @@
+package com.datainsights.portal.util;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Time intervals that trends are grouped by. Every date maps to an integer
+ * bucket id, and consecutive buckets have consecutive ids, so totals of a
+ * date range can be kept in arrays indexed by id - firstId.
+ * <p>
+ * Weeks follow ISO-8601: they start on Monday and are labelled with their
+ * week-based year, e.g. 2024-12-30 is in 2025-W01.
+ */
+public enum TimeInterval {
+
+    DAILY,
+    WEEKLY,
+    MONTHLY,
+    QUARTERLY,
+    YEARLY;
+
+    // Epoch day 0 (1970-01-01) was a Thursday, so epoch day -3 was a Monday
+    private static final int MONDAY_OFFSET = 3;
+
+    /**
+     * @param value daily, weekly, monthly, quarterly or yearly, in any case
+     * @throws IllegalArgumentException for any other value
+     */
+    public static TimeInterval parse(String value) {
+        if (value != null) {
+            for (TimeInterval interval : values()) {
+                if (interval.name().equalsIgnoreCase(value)) {
+                    return interval;
+                }
+            }
+        }
+        throw new IllegalArgumentException(
+                "Invalid interval. Must be one of: daily, weekly, monthly, quarterly, yearly");
+    }
+
+    /**
+     * @return The id of the bucket a date falls into
+     */
+    public long bucketId(LocalDate date) {
+        switch (this) {
+            case WEEKLY:
+                return Math.floorDiv(date.toEpochDay() + MONDAY_OFFSET, 7);
+            case MONTHLY:
+                return date.getYear() * 12L + date.getMonthValue() - 1;
+            case QUARTERLY:
+                return date.getYear() * 4L + (date.getMonthValue() - 1) / 3;
+            case YEARLY:
+                return date.getYear();
+            case DAILY:
+            default:
+                return date.toEpochDay();
+        }
+    }
+
+    /**
+     * @return The number of buckets from the one of startDate to the one of
+     * endDate, 0 if endDate is before startDate
+     */
+    public int bucketCount(LocalDate startDate, LocalDate endDate) {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, bucketId(endDate) - bucketId(startDate) + 1));
+    }
+
+    /**
+     * @return The first day of a bucket
+     */
+    public LocalDate startOf(long bucketId) {
+        switch (this) {
+            case WEEKLY:
+                return LocalDate.ofEpochDay(bucketId * 7 - MONDAY_OFFSET);
+            case MONTHLY:
+                return LocalDate.of((int) Math.floorDiv(bucketId, 12), Math.floorMod(bucketId, 12) + 1, 1);
+            case QUARTERLY:
+                return LocalDate.of((int) Math.floorDiv(bucketId, 4), Math.floorMod(bucketId, 4) * 3 + 1, 1);
+            case YEARLY:
+                return LocalDate.of((int) bucketId, 1, 1);
+            case DAILY:
+            default:
+                return LocalDate.ofEpochDay(bucketId);
+        }
+    }
+
+    /**
+     * Label of a bucket: 2025-03-14, 2025-W11, 2025-03, 2025-Q1 or 2025.
+     * Labels of one interval sort in bucket order.
+     */
+    public String label(long bucketId) {
+        LocalDate start = startOf(bucketId);
+        switch (this) {
+            case WEEKLY:
+                // The ISO week belongs to the year that contains its Thursday
+                LocalDate thursday = start.plusDays(3);
+                return thursday.getYear() + "-W" + twoDigits((thursday.getDayOfYear() - 1) / 7 + 1);
+            case MONTHLY:
+                return start.getYear() + "-" + twoDigits(start.getMonthValue());
+            case QUARTERLY:
+                return start.getYear() + "-Q" + ((start.getMonthValue() - 1) / 3 + 1);
+            case YEARLY:
+                return Integer.toString(start.getYear());
+            case DAILY:
+            default:
+                return start.toString();
+        }
+    }
+
+    /**
+     * @return The lower case name used in requests and cache keys
+     */
+    public String value() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String twoDigits(int value) {
+        return value < 10 ? "0" + value : Integer.toString(value);
+    }
+}
@@ -0,0 +1,274 @@
+package com.datainsights.portal.util;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The transactions of one user as parallel primitive columns: epoch day,
+ * amount in cents and category id, sorted by day. Date ranges are found by
+ * binary search and summed without touching any objects.
+ * <p>
+ * Instances never change. Writes produce a new instance with the row
+ * added or removed, so readers need no locking.
+ */
+public final class UserTransactionColumns {
+
+    public static final UserTransactionColumns EMPTY =
+            new UserTransactionColumns(new int[0], new long[0], new int[0], new String[0]);
+
+    private final int[] days;
+    private final long[] cents;
+    private final int[] categories;
+    // Category id to name, transactions without a category are under ""
+    private final String[] categoryNames;
+
+    private UserTransactionColumns(int[] days, long[] cents, int[] categories, String[] categoryNames) {
+        this.days = days;
+        this.cents = cents;
+        this.categories = categories;
+        this.categoryNames = categoryNames;
+    }
+
+    /**
+     * Build the columns from (date, amount, category) rows ordered by date
+     */
+    public static UserTransactionColumns of(List<Object[]> rows) {
+        int[] days = new int[rows.size()];
+        long[] cents = new long[rows.size()];
+        int[] categories = new int[rows.size()];
+        CategoryDictionary dictionary = new CategoryDictionary();
+
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            days[i] = (int) ((LocalDate) row[0]).toEpochDay();
+            cents[i] = MoneyAccumulator.toCents((BigDecimal) row[1]);
+            categories[i] = dictionary.idOf(row[2] != null ? (String) row[2] : "");
+        }
+
+        String[] names = new String[dictionary.size()];
+        for (int id = 0; id < names.length; id++) {
+            names[id] = dictionary.nameOf(id);
+        }
+        return new UserTransactionColumns(days, cents, categories, names);
+    }
+
+    /**
+     * @return Columns with one more transaction
+     */
+    public UserTransactionColumns withAdded(LocalDate date, BigDecimal amount, String category) {
+        String name = category != null ? category : "";
+        String[] names = categoryNames;
+        int id = indexOf(names, name);
+        if (id < 0) {
+            id = names.length;
+            names = Arrays.copyOf(names, id + 1);
+            names[id] = name;
+        }
+
+        int day = (int) date.toEpochDay();
+        int at = upperBound(day);
+        return new UserTransactionColumns(insert(days, at, day), insert(cents, at, MoneyAccumulator.toCents(amount)),
+                insert(categories, at, id), names);
+    }
+
+    /**
+     * @return Columns without one transaction with these values, or these
+     * columns if there is none
+     */
+    public UserTransactionColumns withRemoved(LocalDate date, BigDecimal amount, String category) {
+        int id = indexOf(categoryNames, category != null ? category : "");
+        int day = (int) date.toEpochDay();
+        long value = MoneyAccumulator.toCents(amount);
+
+        for (int i = lowerBound(day); i < days.length && days[i] == day; i++) {
+            if (cents[i] == value && categories[i] == id) {
+                return new UserTransactionColumns(remove(days, i), remove(cents, i), remove(categories, i),
+                        categoryNames);
+            }
+        }
+        return this;
+    }
+
+    public int size() {
+        return days.length;
+    }
+
+    public boolean isEmpty() {
+        return days.length == 0;
+    }
+
+    /**
+     * @return The category name of an id; "" for transactions without one
+     */
+    public String categoryName(int id) {
+        return categoryNames[id];
+    }
+
+    /**
+     * Visit the transactions of a date range in date order. A null start or
+     * end leaves that side of the range open.
+     */
+    public void forEach(LocalDate startDate, LocalDate endDate, RowConsumer consumer) {
+        int to = to(endDate);
+        for (int i = from(startDate); i < to; i++) {
+            consumer.accept(days[i], cents[i], categories[i]);
+        }
+    }
+
+    /**
+     * Income and expense totals of a date range, both as positive cents
+     */
+    public Totals totals(LocalDate startDate, LocalDate endDate) {
+        long income = 0;
+        long expenses = 0;
+        int incomeCount = 0;
+        int expenseCount = 0;
+
+        int to = to(endDate);
+        for (int i = from(startDate); i < to; i++) {
+            long value = cents[i];
+            if (value > 0) {
+                income += value;
+                incomeCount++;
+            } else if (value < 0) {
+                expenses -= value;
+                expenseCount++;
+            }
+        }
+        return new Totals(income, expenses, incomeCount, expenseCount);
+    }
+
+    /**
+     * Expense totals per category id of a date range, as positive cents
+     */
+    public LongSumMap sumExpensesByCategory(LocalDate startDate, LocalDate endDate) {
+        LongSumMap totals = new LongSumMap();
+        int to = to(endDate);
+        for (int i = from(startDate); i < to; i++) {
+            if (cents[i] < 0) {
+                totals.add(categories[i], -cents[i]);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Sum of the absolute amounts of one category in a date range, in cents
+     */
+    public long sumAbsoluteByCategory(String category, LocalDate startDate, LocalDate endDate) {
+        int id = indexOf(categoryNames, category != null ? category : "");
+        if (id < 0) {
+            return 0;
+        }
+
+        long total = 0;
+        int to = to(endDate);
+        for (int i = from(startDate); i < to; i++) {
+            if (categories[i] == id) {
+                total += Math.abs(cents[i]);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return Approximate heap size in bytes, used as the cache weight
+     */
+    public long bytes() {
+        long bytes = 64 + 16L * days.length;
+        for (String name : categoryNames) {
+            bytes += 48 + name.length();
+        }
+        return bytes;
+    }
+
+    private int from(LocalDate startDate) {
+        return startDate != null ? lowerBound((int) startDate.toEpochDay()) : 0;
+    }
+
+    private int to(LocalDate endDate) {
+        return endDate != null ? upperBound((int) endDate.toEpochDay()) : days.length;
+    }
+
+    // First index whose day is >= day
+    private int lowerBound(int day) {
+        int low = 0;
+        int high = days.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First index whose day is > day
+    private int upperBound(int day) {
+        int low = 0;
+        int high = days.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] <= day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] insert(int[] column, int at, int value) {
+        int[] copy = new int[column.length + 1];
+        System.arraycopy(column, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(column, at, copy, at + 1, column.length - at);
+        return copy;
+    }
+
+    private static long[] insert(long[] column, int at, long value) {
+        long[] copy = new long[column.length + 1];
+        System.arraycopy(column, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(column, at, copy, at + 1, column.length - at);
+        return copy;
+    }
+
+    private static int[] remove(int[] column, int at) {
+        int[] copy = new int[column.length - 1];
+        System.arraycopy(column, 0, copy, 0, at);
+        System.arraycopy(column, at + 1, copy, at, copy.length - at);
+        return copy;
+    }
+
+    private static long[] remove(long[] column, int at) {
+        long[] copy = new long[column.length - 1];
+        System.arraycopy(column, 0, copy, 0, at);
+        System.arraycopy(column, at + 1, copy, at, copy.length - at);
+        return copy;
+    }
+
+    @FunctionalInterface
+    public interface RowConsumer {
+        void accept(int epochDay, long cents, int categoryId);
+    }
+
+    /**
+     * Totals of a date range; income and expenses are positive cents
+     */
+    public record Totals(long income, long expenses, int incomeCount, int expenseCount) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.datainsights.portal.service.impl;
+
+import com.datainsights.portal.repository.MonthlyRollupRepository;
+import com.datainsights.portal.repository.MonthlyRollupRepository.MonthlyTotals;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ForecastModelTest {
+
+    @Test
+    void constantSeriesIsForecastFlatByEveryModel() {
+        double[] series = constant(36, 500);
+        int scoreFrom = ForecastEngine.scoreFrom(series.length);
+
+        for (ForecastModel model : new ForecastModel[]{
+                SimpleExponentialSmoothing.fit(series, scoreFrom),
+                HoltLinearTrend.fit(series, scoreFrom),
+                HoltWinters.fit(series, scoreFrom)}) {
+            assertEquals(0, model.getError(), 1e-9, model.getName());
+            for (double value : model.forecast(12)) {
+                assertEquals(500, value, 1e-6, model.getName());
+            }
+        }
+    }
+
+    @Test
+    void linearSeriesPicksTheTrendModel() {
+        double[] series = new double[18];
+        for (int t = 0; t < series.length; t++) {
+            series[t] = 100 + 10 * t;
+        }
+
+        ForecastModel model = ForecastEngine.fit(series);
+        assertTrue(model instanceof HoltLinearTrend, model.getName());
+
+        // The next month continues the slope, later months level off because the trend is damped
+        double[] forecast = model.forecast(24);
+        assertEquals(280, forecast[0], 1.0);
+        for (int h = 1; h < forecast.length; h++) {
+            double step = forecast[h] - forecast[h - 1];
+            assertTrue(step > 0 && step <= 10 + 1e-9, "step " + step);
+        }
+        assertTrue(forecast[23] < 100 + 10 * (series.length + 23));
+    }
+
+    @Test
+    void seasonalSeriesPicksHoltWinters() {
+        double[] pattern = {900, 850, 950, 1000, 1050, 1100, 1150, 1100, 1000, 950, 1200, 1600};
+        double[] series = new double[40];
+        for (int t = 0; t < series.length; t++) {
+            series[t] = pattern[t % 12];
+        }
+
+        ForecastModel model = ForecastEngine.fit(series);
+        assertTrue(model instanceof HoltWinters, model.getName());
+
+        double[] forecast = model.forecast(12);
+        for (int h = 0; h < forecast.length; h++) {
+            assertEquals(pattern[(series.length + h) % 12], forecast[h], 1.0);
+        }
+    }
+
+    @Test
+    void candidatesAreScoredOnTheSameMonths() {
+        assertEquals(SimpleExponentialSmoothing.INIT_LENGTH, ForecastEngine.scoreFrom(1));
+        assertEquals(SimpleExponentialSmoothing.INIT_LENGTH, ForecastEngine.scoreFrom(2));
+        assertEquals(HoltLinearTrend.INIT_LENGTH, ForecastEngine.scoreFrom(3));
+        assertEquals(HoltLinearTrend.INIT_LENGTH, ForecastEngine.scoreFrom(HoltWinters.INIT_LENGTH));
+        assertEquals(HoltWinters.INIT_LENGTH, ForecastEngine.scoreFrom(HoltWinters.MIN_LENGTH));
+
+        // An outlier before the scored months counts for no model
+        double[] series = constant(30, 200);
+        series[5] = 5000;
+        int scoreFrom = ForecastEngine.scoreFrom(series.length);
+        double sesError = SimpleExponentialSmoothing.fit(series, scoreFrom).getError();
+        double holtError = HoltLinearTrend.fit(series, scoreFrom).getError();
+        assertTrue(sesError < 1, "ses " + sesError);
+        assertTrue(holtError < 1, "holt " + holtError);
+    }
+
+    @Test
+    void shortSeriesOnlyFitTheSimplerModels() {
+        assertNull(SimpleExponentialSmoothing.fit(new double[0], 1));
+        assertNull(HoltLinearTrend.fit(constant(2, 10), 1));
+        assertNull(HoltWinters.fit(constant(HoltWinters.INIT_LENGTH, 10), 2));
+
+        ForecastModel single = ForecastEngine.fit(new double[]{42});
+        assertTrue(single instanceof SimpleExponentialSmoothing);
+        assertEquals(42, single.forecast(1)[0], 1e-9);
+    }
+
+    @Test
+    void partialCurrentMonthIsForecastFromTheCompleteMonths() {
+        int firstMonthId = MonthlyRollupRepository.monthId(2024, 1);
+        List<MonthlyTotals> rows = new ArrayList<>();
+        for (int m = 0; m < 12; m++) {
+            rows.add(new MonthlyTotals(firstMonthId + m, "Pay", 100000, 0, 1, 0, 1));
+        }
+        // A few days into the current month
+        int currentMonthId = firstMonthId + 12;
+        rows.add(new MonthlyTotals(currentMonthId, "Pay", 10000, 0, 1, 0, 1));
+
+        ForecastEngine.UserForecasts forecasts =
+                new ForecastEngine.UserForecasts(1L, 1, currentMonthId, new ForecastState(rows));
+        double[] income = forecasts.income(currentMonthId - 1, 3);
+        assertEquals(100000, income[0], 1e-6);
+        assertEquals(100000, income[1], 1e-6);
+        assertEquals(100000, income[2], 1e-6);
+
+        // With nothing but the current month it is still the best guess
+        ForecastEngine.UserForecasts onlyCurrent = new ForecastEngine.UserForecasts(1L, 1, currentMonthId,
+                new ForecastState(rows.subList(12, 13)));
+        assertEquals(10000, onlyCurrent.income(currentMonthId + 1, 1)[0], 1e-6);
+    }
+
+    @Test
+    void negativeLengthProjectsNothing() {
+        int monthId = MonthlyRollupRepository.monthId(2024, 1);
+        List<MonthlyTotals> rows = List.of(
+                new MonthlyTotals(monthId, "Rent", 0, 80000, 0, 1, 1));
+        ForecastEngine.UserForecasts forecasts =
+                new ForecastEngine.UserForecasts(1L, 1, monthId + 2, new ForecastState(rows));
+
+        assertEquals(0, forecasts.expenses(monthId + 3, -1).length);
+        assertEquals(0, forecasts.income(monthId + 3, 0).length);
+    }
+
+    private static double[] constant(int length, double value) {
+        double[] series = new double[length];
+        Arrays.fill(series, value);
+        return series;
+    }
+}
@@ -0,0 +1,93 @@
+package com.datainsights.portal.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SavingsSimulationTest {
+
+    private static final int MONTHS = 12;
+    // More than one block of paths, the last one partial
+    private static final int PATHS = 2500;
+
+    @Test
+    void seedGivesTheSameResultOnAnyPoolSize() {
+        SavingsSimulation single = simulate(1, 42);
+        SavingsSimulation parallel = simulate(4, 42);
+
+        assertEquals(PATHS, single.getPaths());
+        assertEquals(MONTHS, single.getMonths());
+        for (int m = 0; m < MONTHS; m++) {
+            for (double p = 0; p <= 1; p += 0.05) {
+                assertEquals(single.percentile(m, p), parallel.percentile(m, p), 0.0, "month " + m + " p" + p);
+            }
+        }
+        assertEquals(single.shareAtLeast(MONTHS - 1, 500000), parallel.shareAtLeast(MONTHS - 1, 500000), 0.0);
+
+        // A different seed gives different paths
+        assertTrue(simulate(1, 43).percentile(MONTHS - 1, 0.5) != single.percentile(MONTHS - 1, 0.5));
+    }
+
+    @Test
+    void percentilesAndSharesStayWithinTheSimulatedPaths() {
+        SavingsSimulation simulation = simulate(2, 7);
+        int last = MONTHS - 1;
+
+        double min = simulation.percentile(last, 0);
+        double max = simulation.percentile(last, 1);
+        assertTrue(min < simulation.percentile(last, 0.5));
+        assertTrue(simulation.percentile(last, 0.5) < max);
+        for (double p = 0.1; p < 1; p += 0.1) {
+            assertTrue(simulation.percentile(last, p - 0.1) <= simulation.percentile(last, p));
+        }
+
+        // Out of range percentiles are clamped to the lowest and highest path
+        assertEquals(min, simulation.percentile(last, -0.5), 0.0);
+        assertEquals(max, simulation.percentile(last, 1.5), 0.0);
+
+        assertEquals(1.0, simulation.shareAtLeast(last, min), 0.0);
+        assertEquals(1.0, simulation.shareAtLeast(last, Double.NEGATIVE_INFINITY), 0.0);
+        assertEquals(1.0 / PATHS, simulation.shareAtLeast(last, max), 0.0);
+        assertEquals(0.0, simulation.shareAtLeast(last, Math.nextUp(max)), 0.0);
+        double median = simulation.shareAtLeast(last, simulation.percentile(last, 0.5));
+        assertTrue(median > 0.45 && median < 0.55, "median share " + median);
+    }
+
+    @Test
+    void withoutNoiseEveryPathFollowsTheProjection() {
+        double[] income = new double[MONTHS];
+        double[] expenses = new double[MONTHS];
+        Arrays.fill(income, 300000);
+        Arrays.fill(expenses, 200000);
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            SavingsSimulation simulation = SavingsSimulation.run(pool, income, expenses, 0, 0, 50000, 0, 10, 1);
+            for (int m = 0; m < MONTHS; m++) {
+                double expected = 50000 + 100000.0 * (m + 1);
+                assertEquals(expected, simulation.percentile(m, 0), 1e-6);
+                assertEquals(expected, simulation.percentile(m, 1), 1e-6);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static SavingsSimulation simulate(int parallelism, long seed) {
+        double[] income = new double[MONTHS];
+        double[] expenses = new double[MONTHS];
+        Arrays.fill(income, 400000);
+        Arrays.fill(expenses, 350000);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return SavingsSimulation.run(pool, income, expenses, 80000, 60000, 100000, 0.002, PATHS, seed);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.datainsights.portal.util;
+
+import com.datainsights.portal.model.FinancialData;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExcelStreamingParserTest {
+
+    @Test
+    void textDatesFollowTheDayOrderOfTheSheet() throws IOException {
+        // 03/04 is ambiguous on its own, 25/04 shows the sheet is day first
+        List<FinancialData> rows = parse(new String[][]{
+                {"03/04/2024", "-12.50"},
+                {"25/04/2024", "100"}});
+
+        assertEquals(2, rows.size());
+        assertEquals(LocalDate.of(2024, 4, 3), rows.get(0).getTransactionDate());
+        assertEquals(LocalDate.of(2024, 4, 25), rows.get(1).getTransactionDate());
+    }
+
+    @Test
+    void ambiguousTextDatesStayMonthFirst() throws IOException {
+        List<FinancialData> rows = parse(new String[][]{
+                {"03/04/2024", "1"},
+                {"04/30/2024", "2"}});
+
+        assertEquals(LocalDate.of(2024, 3, 4), rows.get(0).getTransactionDate());
+        assertEquals(LocalDate.of(2024, 4, 30), rows.get(1).getTransactionDate());
+    }
+
+    @Test
+    void rowsBeyondTheSampleUseTheDetectedOrder() throws IOException {
+        String[][] values = new String[FileParserUtil.DATE_SAMPLE_ROWS + 5][];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new String[]{"01/02/2024", "5"};
+        }
+        values[0] = new String[]{"13/02/2024", "5"};
+
+        List<FinancialData> rows = parse(values);
+        assertEquals(values.length, rows.size());
+        assertEquals(LocalDate.of(2024, 2, 1), rows.get(values.length - 1).getTransactionDate());
+    }
+
+    private static List<FinancialData> parse(String[][] values) throws IOException {
+        Path file = Files.createTempFile("transactions", ".xlsx");
+        try {
+            try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+                Sheet sheet = workbook.createSheet();
+                Row header = sheet.createRow(0);
+                header.createCell(0).setCellValue("Date");
+                header.createCell(1).setCellValue("Amount");
+                for (int r = 0; r < values.length; r++) {
+                    Row row = sheet.createRow(r + 1);
+                    for (int c = 0; c < values[r].length; c++) {
+                        row.createCell(c).setCellValue(values[r][c]);
+                    }
+                }
+                workbook.write(out);
+            }
+
+            List<FinancialData> rows = new ArrayList<>();
+            int rejected = ExcelStreamingParser.streamFinancialData(file, rows::add);
+            assertEquals(0, rejected);
+            return rows;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.datainsights.portal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FieldParserTest {
+
+    @Test
+    void parsesPlainAndFormattedAmounts() {
+        assertCents(123456, "1,234.56");
+        assertCents(1250, "$12.5");
+        assertCents(700, "7");
+        assertCents(5, ".05");
+        assertCents(1000, "+10");
+    }
+
+    @Test
+    void parsesNegativeAndParenthesisedAmounts() {
+        assertCents(-123456, "-1,234.56");
+        assertCents(-4000, "(40.00)");
+        assertCents(-4000, "($40.00)");
+        assertCents(-1250, "$-12.50");
+        assertCents(-1250, "-$12.50");
+    }
+
+    @Test
+    void roundsDigitsBeyondTheSecondDecimalHalfUp() {
+        assertCents(1235, "12.345");
+        assertCents(1234, "12.3449");
+        assertCents(-1235, "-12.345");
+    }
+
+    @Test
+    void trimsQuotesAndPaddingTheSameOnBothPaths() {
+        assertCents(1050, "\"10.50\"");
+        assertCents(1050, "  10.50  ");
+        assertCents(1050, "\t10.50\t");
+        assertCents(1050, "10.50\r");
+        assertCents(-1050, " \"(10.50)\" ");
+    }
+
+    @Test
+    void rejectsInvalidAmounts() {
+        assertCents(FieldParser.INVALID_AMOUNT, "");
+        assertCents(FieldParser.INVALID_AMOUNT, "   ");
+        assertCents(FieldParser.INVALID_AMOUNT, "abc");
+        assertCents(FieldParser.INVALID_AMOUNT, "1.2.3");
+        assertCents(FieldParser.INVALID_AMOUNT, "12.34,5");
+        assertCents(FieldParser.INVALID_AMOUNT, "12\u00e9");
+        assertCents(FieldParser.INVALID_AMOUNT, "12345678901234567");
+    }
+
+    @Test
+    void parsesIsoDatesRegardlessOfDayOrder() {
+        assertDate(LocalDate.of(2024, 2, 29), "2024-02-29", false);
+        assertDate(LocalDate.of(2024, 2, 29), "2024-02-29", true);
+        assertDate(null, "2023-02-29", false);
+    }
+
+    @Test
+    void readsSlashDatesInTheFileDayOrder() {
+        assertDate(LocalDate.of(2024, 3, 4), "03/04/2024", false);
+        assertDate(LocalDate.of(2024, 4, 3), "03/04/2024", true);
+        assertDate(LocalDate.of(2024, 4, 13), "13/04/2024", true);
+        assertDate(LocalDate.of(2024, 12, 31), " \"12/31/2024\"\r", false);
+    }
+
+    @Test
+    void fallsBackToTheOtherDayOrderOnlyWhenTheDateIsImpossible() {
+        assertDate(LocalDate.of(2024, 4, 13), "13/04/2024", false);
+        assertDate(LocalDate.of(2024, 12, 31), "12/31/2024", true);
+        assertDate(null, "13/13/2024", false);
+        assertDate(null, "2024/01/01", false);
+    }
+
+    @Test
+    void detectsDayOrderFromTheFirstConclusiveSample() {
+        assertTrue(FieldParser.isDayFirst(List.of("01/02/2024", "25/02/2024", "02/26/2024")));
+        assertFalse(FieldParser.isDayFirst(List.of("01/02/2024", "02/25/2024")));
+        assertFalse(FieldParser.isDayFirst(List.of("01/02/2024", "2024-02-25")));
+    }
+
+    @Test
+    void epochDayMatchesLocalDate() {
+        LocalDate date = LocalDate.of(1899, 12, 31);
+        LocalDate end = LocalDate.of(2101, 1, 1);
+        for (; date.isBefore(end); date = date.plusDays(1)) {
+            assertEquals(date.toEpochDay(),
+                    FieldParser.epochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+        }
+    }
+
+    private static void assertCents(long expected, String field) {
+        String padded = "x," + field + ",y";
+        int from = 2;
+        int to = from + field.length();
+
+        assertEquals(expected, FieldParser.parseCents(padded, from, to), "char path: " + field);
+        ByteBuffer buf = ByteBuffer.wrap(padded.getBytes(StandardCharsets.ISO_8859_1));
+        assertEquals(expected, FieldParser.parseCents(buf, from, to), "byte path: " + field);
+    }
+
+    private static void assertDate(LocalDate expected, String field, boolean dayFirst) {
+        long expectedDay = expected != null ? expected.toEpochDay() : FieldParser.INVALID_DATE;
+        String padded = "x," + field + ",y";
+        int from = 2;
+        int to = from + field.length();
+
+        assertEquals(expectedDay, FieldParser.parseEpochDay(padded, from, to, dayFirst), "char path: " + field);
+        ByteBuffer buf = ByteBuffer.wrap(padded.getBytes(StandardCharsets.ISO_8859_1));
+        assertEquals(expectedDay, FieldParser.parseEpochDay(buf, from, to, dayFirst), "byte path: " + field);
+    }
+}
@@ -0,0 +1,47 @@
+package com.datainsights.portal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyAccumulatorTest {
+
+    @Test
+    void toCentsMatchesRoundingThroughBigDecimal() {
+        for (long unscaled = -200000; unscaled <= 200000; unscaled += 7) {
+            for (int scale = 0; scale <= 4; scale++) {
+                BigDecimal amount = BigDecimal.valueOf(unscaled, scale);
+                assertEquals(exactCents(amount), MoneyAccumulator.toCents(amount), amount.toPlainString());
+            }
+        }
+
+        for (String value : new String[]{"9999999999999.99", "-9999999999999.99", "123456789012.345",
+                "0.005", "-0.005", "1.005", "42E+3", "999999999999999.99"}) {
+            BigDecimal amount = new BigDecimal(value);
+            assertEquals(exactCents(amount), MoneyAccumulator.toCents(amount), value);
+        }
+    }
+
+    @Test
+    void toCentsRejectsAmountsBeyondALong() {
+        assertThrows(ArithmeticException.class, () -> MoneyAccumulator.toCents(new BigDecimal("1E+20")));
+    }
+
+    @Test
+    void accumulatesCentsAndReturnsScaleTwo() {
+        MoneyAccumulator total = new MoneyAccumulator()
+                .add(new BigDecimal("10.10"))
+                .add(new BigDecimal("-0.35"))
+                .addCents(5);
+        assertEquals(980, total.getCents());
+        assertEquals(new BigDecimal("9.80"), total.toBigDecimal());
+    }
+
+    private static long exactCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
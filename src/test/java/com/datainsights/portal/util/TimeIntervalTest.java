@@ -0,0 +1,89 @@
+package com.datainsights.portal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeIntervalTest {
+
+    @Test
+    void weeksAreLabelledWithTheirIsoWeekBasedYear() {
+        assertEquals("2020-W53", weekLabel(LocalDate.of(2020, 12, 31)));
+        assertEquals("2020-W53", weekLabel(LocalDate.of(2021, 1, 3)));
+        assertEquals("2021-W01", weekLabel(LocalDate.of(2021, 1, 4)));
+        assertEquals("2025-W01", weekLabel(LocalDate.of(2024, 12, 30)));
+        assertEquals("2024-W52", weekLabel(LocalDate.of(2024, 12, 29)));
+    }
+
+    @Test
+    void weekLabelsMatchIsoFieldsForEveryDay() {
+        for (LocalDate date = LocalDate.of(2019, 12, 1); date.isBefore(LocalDate.of(2027, 2, 1)); date = date.plusDays(1)) {
+            int week = date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+            String expected = date.get(IsoFields.WEEK_BASED_YEAR) + "-W" + (week < 10 ? "0" + week : week);
+            assertEquals(expected, weekLabel(date), date.toString());
+        }
+    }
+
+    @Test
+    void everyBucketStartsOnItsFirstDayAndMapsBackToItself() {
+        LocalDate from = LocalDate.of(1969, 11, 15);
+        LocalDate to = LocalDate.of(2026, 3, 10);
+        for (TimeInterval interval : TimeInterval.values()) {
+            long firstId = interval.bucketId(from);
+            int count = interval.bucketCount(from, to);
+            assertEquals(interval.bucketId(to), firstId + count - 1, interval.value());
+
+            for (long id = firstId; id < firstId + count; id++) {
+                LocalDate start = interval.startOf(id);
+                assertEquals(id, interval.bucketId(start), interval.value() + " " + start);
+                assertEquals(id - 1, interval.bucketId(start.minusDays(1)), interval.value() + " " + start);
+            }
+        }
+
+        assertEquals(DayOfWeek.MONDAY, TimeInterval.WEEKLY.startOf(TimeInterval.WEEKLY.bucketId(from)).getDayOfWeek());
+        assertEquals(LocalDate.of(2026, 1, 1), TimeInterval.QUARTERLY.startOf(TimeInterval.QUARTERLY.bucketId(to)));
+        assertEquals(LocalDate.of(1969, 11, 1), TimeInterval.MONTHLY.startOf(TimeInterval.MONTHLY.bucketId(from)));
+    }
+
+    @Test
+    void bucketCountCoversPartialBucketsAtBothEnds() {
+        LocalDate start = LocalDate.of(2024, 12, 30);
+        LocalDate end = LocalDate.of(2025, 1, 6);
+        assertEquals(8, TimeInterval.DAILY.bucketCount(start, end));
+        assertEquals(2, TimeInterval.WEEKLY.bucketCount(start, end));
+        assertEquals(2, TimeInterval.MONTHLY.bucketCount(start, end));
+        assertEquals(2, TimeInterval.QUARTERLY.bucketCount(start, end));
+        assertEquals(2, TimeInterval.YEARLY.bucketCount(start, end));
+        assertEquals(1, TimeInterval.WEEKLY.bucketCount(start, start));
+        assertEquals(0, TimeInterval.DAILY.bucketCount(end, start));
+    }
+
+    @Test
+    void labelsSortInBucketOrder() {
+        for (TimeInterval interval : TimeInterval.values()) {
+            long id = interval.bucketId(LocalDate.of(2019, 6, 1));
+            for (int i = 0; i < 400; i++, id++) {
+                assertTrue(interval.label(id).compareTo(interval.label(id + 1)) < 0,
+                        interval.label(id) + " " + interval.label(id + 1));
+            }
+        }
+    }
+
+    @Test
+    void parseAcceptsAnyCaseAndRejectsOtherValues() {
+        assertEquals(TimeInterval.WEEKLY, TimeInterval.parse("Weekly"));
+        assertEquals(TimeInterval.QUARTERLY, TimeInterval.parse("quarterly"));
+        assertThrows(IllegalArgumentException.class, () -> TimeInterval.parse("hourly"));
+        assertThrows(IllegalArgumentException.class, () -> TimeInterval.parse(null));
+    }
+
+    private static String weekLabel(LocalDate date) {
+        return TimeInterval.WEEKLY.label(TimeInterval.WEEKLY.bucketId(date));
+    }
+}